@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// сервис без веб-сервера на отдельной базе H2 в памяти, заполненной синтетическими данными
+@Slf4j
+public class BenchmarkDataset {
+    static final int GENRES_PER_FILM = 2;
+    static final int LIKES_PER_USER = 10;
+    static final int FRIENDS_PER_USER = 20;
+
+    private BenchmarkDataset() {
+    }
+
+    // фильмов и пользователей создается по size, у каждого пользователя LIKES_PER_USER лайков и FRIENDS_PER_USER друзей
+    public static ConfigurableApplicationContext start(int size) {
+        String url = "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        ConfigurableApplicationContext context = run(url);
+        try {
+            seed(context.getBean(JdbcTemplate.class), size);
+        } finally {
+            context.close();
+        }
+        // индексы в памяти загружаются при старте, поэтому после заполнения базы контекст поднимается заново
+        return run(url);
+    }
+
+    private static ConfigurableApplicationContext run(String url) {
+        return run(url, WebApplicationType.NONE, "--filmorate.cache.entities.enabled=false");
+    }
+
+    static ConfigurableApplicationContext run(String url, WebApplicationType type, String... args) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.main.banner-mode=off",
+                "--spring.datasource.url=" + url,
+                "--logging.file.name=",
+                "--logging.level.root=warn",
+                "--logging.level.ru.yandex.practicum.filmorate.benchmark=info"));
+        arguments.addAll(List.of(args));
+        // аргументы командной строки имеют приоритет над application.properties, в отличие от properties()
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(type)
+                .run(arguments.toArray(String[]::new));
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate, int size) {
+        long start = System.nanoTime();
+        jdbcTemplate.update(String.format("INSERT INTO films (id, name, description, release_date, duration, " +
+                "mpa_id, like_count) SELECT X, 'Фильм ' || X, 'Описание фильма номер ' || X, " +
+                "DATEADD(DAY, MOD(X, 10000), DATE '1970-01-01'), 60 + MOD(X, 120), MOD(X, 5) + 1, 0 " +
+                "FROM SYSTEM_RANGE(1, %d)", size));
+        jdbcTemplate.update(String.format("INSERT INTO film_genre (film_id, genre_id) " +
+                "SELECT DISTINCT f.X, MOD(f.X + g.X, 6) + 1 FROM SYSTEM_RANGE(1, %d) AS f, " +
+                "SYSTEM_RANGE(1, %d) AS g", size, GENRES_PER_FILM));
+        jdbcTemplate.update(String.format("INSERT INTO users (id, email, login, name, birthday) " +
+                "SELECT X, 'user' || X || '@mail.ru', 'user' || X, 'Пользователь ' || X, " +
+                "DATEADD(DAY, MOD(X, 15000), DATE '1960-01-01') FROM SYSTEM_RANGE(1, %d)", size));
+        // псевдослучайная доля в кубе: фильмы с малыми номерами получают заметно больше лайков
+        jdbcTemplate.update(String.format("INSERT INTO likes (film_id, user_id) " +
+                "SELECT DISTINCT CAST(FLOOR(POWER(MOD(u.X * 7919 + j.X * 104729, %1$d) / CAST(%1$d AS DOUBLE), 3) " +
+                "* %1$d) AS INTEGER) + 1, u.X FROM SYSTEM_RANGE(1, %1$d) AS u, SYSTEM_RANGE(1, %2$d) AS j",
+                size, LIKES_PER_USER));
+        jdbcTemplate.update(String.format("INSERT INTO friends (user_id, friend_id) " +
+                "SELECT DISTINCT u.X, MOD(u.X + k.X * k.X, %1$d) + 1 FROM SYSTEM_RANGE(1, %1$d) AS u, " +
+                "SYSTEM_RANGE(1, %2$d) AS k WHERE MOD(u.X + k.X * k.X, %1$d) + 1 <> u.X", size, FRIENDS_PER_USER));
+        jdbcTemplate.update("UPDATE films AS f " +
+                "SET like_count = (SELECT COUNT(*) FROM likes AS l WHERE l.film_id = f.id)");
+        jdbcTemplate.execute(String.format("ALTER TABLE films ALTER COLUMN id RESTART WITH %d", size + 1));
+        jdbcTemplate.execute(String.format("ALTER TABLE users ALTER COLUMN id RESTART WITH %d", size + 1));
+        log.info("Тестовые данные созданы: {} фильмов и пользователей за {} мс",
+                size, (System.nanoTime() - start) / 1_000_000);
+    }
+}
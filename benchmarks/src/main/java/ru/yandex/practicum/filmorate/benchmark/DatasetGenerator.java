@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Paths;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// заполняет файловую базу H2 пользователями, фильмами, лайками и дружбой со степенным распределением
+@Slf4j
+public class DatasetGenerator {
+    private static final int BATCH_SIZE = 5000;
+    private static final int GENRES = 6;
+    private static final int MPA = 5;
+    private final JdbcTemplate jdbcTemplate;
+    private final Random random;
+    private long rows;
+
+    private DatasetGenerator(JdbcTemplate jdbcTemplate, Random random) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.random = random;
+    }
+
+    public static void main(String[] args) {
+        Arguments arguments = new Arguments(args);
+        String path = Paths.get(arguments.get("db", "../db/filmorate")).toAbsolutePath().normalize().toString();
+        int users = arguments.getInt("users", 10_000);
+        int films = arguments.getInt("films", 2_000);
+        double likesPerUser = arguments.getDouble("likes-per-user", 20);
+        double friendsPerUser = arguments.getDouble("friends-per-user", 10);
+        double exponent = arguments.getDouble("zipf", 1.0);
+        Random random = new Random(arguments.getInt("seed", 42));
+
+        try (ConfigurableApplicationContext context = BenchmarkDataset.run("jdbc:h2:file:" + path,
+                WebApplicationType.NONE)) {
+            DatasetGenerator generator = new DatasetGenerator(context.getBean(JdbcTemplate.class), random);
+            generator.prepare(arguments.getBoolean("reset"), path);
+            long start = System.nanoTime();
+            generator.generate(users, films, likesPerUser, friendsPerUser, exponent);
+            log.info("В базу {} записано {} строк за {} мс", path, generator.rows,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private void prepare(boolean reset, String path) {
+        Integer existing = jdbcTemplate.queryForObject("SELECT (SELECT COUNT(*) FROM films) + " +
+                "(SELECT COUNT(*) FROM users)", Integer.class);
+        if (existing == null || existing == 0) {
+            return;
+        }
+        if (!reset) {
+            throw new IllegalStateException(String.format("База %s уже содержит данные, " +
+                    "для перезаписи запустите генератор с --reset=true.", path));
+        }
+        for (String table : List.of("likes", "friends", "film_genre", "films", "users")) {
+            jdbcTemplate.update("DELETE FROM " + table);
+        }
+        log.info("Данные в базе {} удалены", path);
+    }
+
+    private void generate(int users, int films, double likesPerUser, double friendsPerUser, double exponent) {
+        try (Batch batch = new Batch("INSERT INTO users (id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)")) {
+            for (int id = 1; id <= users; id++) {
+                batch.add(id, "user" + id + "@mail.ru", "user" + id, "Пользователь " + id,
+                        Date.valueOf(LocalDate.of(1960, 1, 1).plusDays(random.nextInt(15_000))));
+            }
+        }
+        try (Batch batch = new Batch("INSERT INTO films (id, name, description, release_date, duration, mpa_id, " +
+                "like_count) VALUES (?, ?, ?, ?, ?, ?, 0)")) {
+            for (int id = 1; id <= films; id++) {
+                batch.add(id, "Фильм " + id, "Описание фильма номер " + id,
+                        Date.valueOf(LocalDate.of(1930, 1, 1).plusDays(random.nextInt(34_000))),
+                        60 + random.nextInt(120), random.nextInt(MPA) + 1);
+            }
+        }
+        try (Batch genres = new Batch("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)")) {
+            for (int id = 1; id <= films; id++) {
+                int first = random.nextInt(GENRES);
+                int count = 1 + random.nextInt(3);
+                for (int i = 0; i < count; i++) {
+                    genres.add(id, (first + i) % GENRES + 1);
+                }
+            }
+        }
+        log.info("Созданы {} пользователей и {} фильмов", users, films);
+
+        // популярность фильмов и пользователей по закону Ципфа, число связей у каждого пользователя - по Парето
+        link("likes", "film_id", users, films, likesPerUser, exponent);
+        link("friends", "friend_id", users, users, friendsPerUser, exponent);
+        jdbcTemplate.update("UPDATE films AS f " +
+                "SET like_count = (SELECT COUNT(*) FROM likes AS l WHERE l.film_id = f.id)");
+        jdbcTemplate.execute(String.format("ALTER TABLE films ALTER COLUMN id RESTART WITH %d", films + 1));
+        jdbcTemplate.execute(String.format("ALTER TABLE users ALTER COLUMN id RESTART WITH %d", users + 1));
+    }
+
+    private void link(String table, String targetColumn, int users, int targets, double mean, double exponent) {
+        // друзья выбираются среди тех же пользователей, себя добавить нельзя
+        boolean excludeSelf = "friends".equals(table);
+        PowerLaw popularity = new PowerLaw(targets, exponent);
+        int[] byRank = PowerLaw.shuffledIds(random, targets);
+        int max = excludeSelf ? targets - 1 : targets;
+        long links = 0;
+        String sql = String.format("INSERT INTO %s (user_id, %s) VALUES (?, ?)", table, targetColumn);
+        try (Batch batch = new Batch(sql)) {
+            for (int userId = 1; userId <= users; userId++) {
+                int degree = PowerLaw.degree(random, mean, max);
+                Set<Integer> chosen = new HashSet<>();
+                // при сильном перекосе популярные цели выпадают повторно, число попыток ограничено
+                for (int attempt = 0; chosen.size() < degree && attempt < degree * 10; attempt++) {
+                    int target = byRank[popularity.sample(random)];
+                    if ((!excludeSelf || target != userId) && chosen.add(target)) {
+                        batch.add(userId, target);
+                    }
+                }
+                links += chosen.size();
+            }
+        }
+        log.info("Создано строк в таблице {}: {}", table, links);
+    }
+
+    // пакетная вставка строк частями по BATCH_SIZE
+    private class Batch implements AutoCloseable {
+        private final String sql;
+        private final List<Object[]> pending = new ArrayList<>(BATCH_SIZE);
+
+        private Batch(String sql) {
+            this.sql = sql;
+        }
+
+        private void add(Object... row) {
+            pending.add(row);
+            if (pending.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (!pending.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, pending);
+                rows += pending.size();
+                pending.clear();
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+}
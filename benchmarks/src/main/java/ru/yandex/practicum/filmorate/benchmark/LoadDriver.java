@@ -0,0 +1,284 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// замкнутый цикл нагрузки на REST API: каждый поток отправляет следующий запрос только после ответа на предыдущий
+@Slf4j
+public class LoadDriver {
+    private static final int MAX_LIKED = 10_000;
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String baseUrl;
+    private final int films;
+    private final int users;
+    private final int threads;
+    private final Map<Endpoint, Integer> mix;
+    private final int totalWeight;
+    private final PowerLaw filmPopularity;
+
+    private LoadDriver(String baseUrl, int films, int users, int threads, Map<Endpoint, Integer> mix, double exponent) {
+        this.baseUrl = baseUrl;
+        this.films = films;
+        this.users = users;
+        this.threads = threads;
+        this.mix = mix;
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        this.filmPopularity = new PowerLaw(films, exponent);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Arguments arguments = new Arguments(args);
+        int threads = arguments.getInt("threads", 16);
+        long warmupMillis = TimeUnit.SECONDS.toMillis(arguments.getInt("warmup-s", 5));
+        long durationMillis = TimeUnit.SECONDS.toMillis(arguments.getInt("duration-s", 30));
+        Map<Endpoint, Integer> mix = parseMix(arguments.get("mix", "popular:40,film:40,like:8,unlike:7,common:5"));
+        double exponent = arguments.getDouble("zipf", 1.0);
+        Path out = Paths.get(arguments.get("out", "target/loadtest"));
+
+        ConfigurableApplicationContext context = null;
+        try {
+            String baseUrl;
+            int films;
+            int users;
+            if (arguments.has("url")) {
+                if (!arguments.has("films") || !arguments.has("users")) {
+                    throw new IllegalArgumentException("Для внешнего сервиса нужно указать --films и --users.");
+                }
+                baseUrl = arguments.get("url", null);
+                films = arguments.getInt("films", 0);
+                users = arguments.getInt("users", 0);
+            } else {
+                // без --url сервис поднимается в этом же процессе на случайном порту поверх файловой базы
+                String path = Paths.get(arguments.get("db", "../db/filmorate")).toAbsolutePath().normalize().toString();
+                context = BenchmarkDataset.run("jdbc:h2:file:" + path, WebApplicationType.SERVLET, "--server.port=0");
+                baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+                films = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM films", Integer.class);
+                users = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM users", Integer.class);
+            }
+            if (films == 0 || users < threads) {
+                throw new IllegalStateException(String.format("Недостаточно данных для нагрузки: %d фильмов, " +
+                        "%d пользователей на %d потоков. Сначала запустите DatasetGenerator.", films, users, threads));
+            }
+            log.info("Нагрузка на {}: {} фильмов, {} пользователей, {} потоков, прогрев {} с, замер {} с",
+                    baseUrl, films, users, threads, warmupMillis / 1000, durationMillis / 1000);
+            new LoadDriver(baseUrl, films, users, threads, mix, exponent).run(warmupMillis, durationMillis, out);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private void run(long warmupMillis, long durationMillis, Path out) throws InterruptedException, IOException {
+        long measureFrom = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(warmupMillis);
+        long measureTo = measureFrom + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        List<Worker> workers = new ArrayList<>(threads);
+        List<Thread> started = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(i, measureFrom, measureTo);
+            Thread thread = new Thread(worker, "load-driver-" + (i + 1));
+            thread.start();
+            workers.add(worker);
+            started.add(thread);
+        }
+        for (Thread thread : started) {
+            thread.join();
+        }
+
+        Map<Endpoint, Histogram> latencies = new EnumMap<>(Endpoint.class);
+        Map<Endpoint, Long> errors = new EnumMap<>(Endpoint.class);
+        for (Worker worker : workers) {
+            worker.latencies.forEach((endpoint, histogram) ->
+                    latencies.computeIfAbsent(endpoint, key -> new Histogram(3)).add(histogram));
+            worker.errors.forEach((endpoint, count) -> errors.merge(endpoint, count, Long::sum));
+        }
+        report(latencies, errors, durationMillis / 1000.0, out);
+    }
+
+    private void report(Map<Endpoint, Histogram> latencies, Map<Endpoint, Long> errors, double seconds, Path out)
+            throws IOException {
+        Files.createDirectories(out);
+        Histogram total = new Histogram(3);
+        StringBuilder table = new StringBuilder(String.format("%n%-40s %10s %8s %10s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+        for (Map.Entry<Endpoint, Histogram> entry : latencies.entrySet()) {
+            Histogram histogram = entry.getValue();
+            total.add(histogram);
+            table.append(row(entry.getKey().route, histogram, errors.getOrDefault(entry.getKey(), 0L), seconds));
+            // распределение в формате HdrHistogram, значения в миллисекундах
+            try (PrintStream file = new PrintStream(out.resolve(entry.getKey().name().toLowerCase() + ".hgrm")
+                    .toFile(), StandardCharsets.UTF_8)) {
+                histogram.outputPercentileDistribution(file, 1000.0);
+            }
+        }
+        long totalErrors = errors.values().stream().mapToLong(Long::longValue).sum();
+        table.append(row("всего", total, totalErrors, seconds));
+        log.info("Результаты нагрузки, распределения задержек сохранены в {}:{}", out.toAbsolutePath(), table);
+    }
+
+    private static String row(String name, Histogram histogram, long errors, double seconds) {
+        return String.format("%-40s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getTotalCount(),
+                errors, histogram.getTotalCount() / seconds, histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private Endpoint pick(Random random) {
+        int value = random.nextInt(totalWeight);
+        for (Map.Entry<Endpoint, Integer> entry : mix.entrySet()) {
+            value -= entry.getValue();
+            if (value < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Пустой набор запросов.");
+    }
+
+    private static Map<Endpoint, Integer> parseMix(String value) {
+        Map<Endpoint, Integer> mix = new EnumMap<>(Endpoint.class);
+        for (String part : value.split(",")) {
+            String[] weight = part.trim().split(":");
+            if (weight.length != 2) {
+                throw new IllegalArgumentException(String.format("Доля %s должна иметь вид endpoint:вес.", part));
+            }
+            mix.put(Endpoint.valueOf(weight[0].toUpperCase()), Integer.parseInt(weight[1]));
+        }
+        return mix;
+    }
+
+    enum Endpoint {
+        POPULAR("GET /films/popular"),
+        FILM("GET /films/{id}"),
+        LIKE("PUT /films/{id}/like/{userId}"),
+        UNLIKE("DELETE /films/{id}/like/{userId}"),
+        COMMON("GET /users/{id}/friends/common/{otherId}");
+
+        private final String route;
+
+        Endpoint(String route) {
+            this.route = route;
+        }
+    }
+
+    private class Worker implements Runnable {
+        private final int index;
+        private final long measureFrom;
+        private final long measureTo;
+        private final Map<Endpoint, Histogram> latencies = new EnumMap<>(Endpoint.class);
+        private final Map<Endpoint, Long> errors = new EnumMap<>(Endpoint.class);
+        // лайки, поставленные этим потоком: снимать можно только их
+        private final Deque<int[]> liked = new ArrayDeque<>();
+
+        private Worker(int index, long measureFrom, long measureTo) {
+            this.index = index;
+            this.measureFrom = measureFrom;
+            this.measureTo = measureTo;
+        }
+
+        @Override
+        public void run() {
+            Random random = ThreadLocalRandom.current();
+            long start;
+            while ((start = System.nanoTime()) < measureTo) {
+                Endpoint endpoint = pick(random);
+                if (endpoint == Endpoint.UNLIKE && liked.isEmpty()) {
+                    endpoint = Endpoint.LIKE;
+                }
+                int[] like = endpoint == Endpoint.LIKE ? new int[]{randomFilm(random), ownUser(random)}
+                        : endpoint == Endpoint.UNLIKE ? liked.pollFirst() : null;
+                boolean success = send(request(endpoint, random, like));
+                long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+                if (success && endpoint == Endpoint.LIKE) {
+                    liked.addLast(like);
+                    if (liked.size() > MAX_LIKED) {
+                        liked.pollFirst();
+                    }
+                }
+                if (start >= measureFrom) {
+                    latencies.computeIfAbsent(endpoint, key -> new Histogram(3)).recordValue(micros);
+                    if (!success) {
+                        errors.merge(endpoint, 1L, Long::sum);
+                    }
+                }
+            }
+        }
+
+        private HttpRequest request(Endpoint endpoint, Random random, int[] like) {
+            switch (endpoint) {
+                case POPULAR:
+                    return get("/films/popular?count=10");
+                case FILM:
+                    return get("/films/" + randomFilm(random));
+                case LIKE:
+                    return HttpRequest.newBuilder(uri("/films/" + like[0] + "/like/" + like[1]))
+                            .PUT(HttpRequest.BodyPublishers.noBody())
+                            .build();
+                case UNLIKE:
+                    return HttpRequest.newBuilder(uri("/films/" + like[0] + "/like/" + like[1]))
+                            .DELETE()
+                            .build();
+                case COMMON:
+                    return get("/users/" + (random.nextInt(users) + 1) + "/friends/common/" +
+                            (random.nextInt(users) + 1));
+                default:
+                    throw new IllegalArgumentException(endpoint.name());
+            }
+        }
+
+        private boolean send(HttpRequest request) {
+            try {
+                return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+            } catch (IOException ex) {
+                return false;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private int randomFilm(Random random) {
+            return filmPopularity.sample(random) + 1;
+        }
+
+        // у каждого потока свои пользователи, поэтому потоки не снимают лайки друг друга
+        private int ownUser(Random random) {
+            int count = (users - index + threads - 1) / threads;
+            return index + 1 + threads * random.nextInt(count);
+        }
+
+        private HttpRequest get(String path) {
+            return HttpRequest.newBuilder(uri(path)).GET().build();
+        }
+
+        private URI uri(String path) {
+            return URI.create(baseUrl + path);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.cache.FilmJsonCache;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmDbStorage;
+import ru.yandex.practicum.filmorate.util.Mapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// разбор строк films в Film и сериализация списка фильмов: Jackson и готовые фрагменты FilmJsonCache
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+    @Param({"10", "100"})
+    public int size;
+    private ConfigurableApplicationContext context;
+    private ReferenceDataCache referenceData;
+    private ObjectMapper objectMapper;
+    private FilmJsonCache filmJsonCache;
+    private List<Film> films;
+    private SimpleResultSet rows;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 16);
+
+    @Setup
+    public void setUp() throws IOException {
+        context = BenchmarkDataset.start(size);
+        referenceData = context.getBean(ReferenceDataCache.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        filmJsonCache = new FilmJsonCache(objectMapper, 1 << 24, new SimpleMeterRegistry());
+        films = context.getBean("FilmDbStorage", FilmDbStorage.class).getAll();
+        rows = new SimpleResultSet();
+        // без автозакрытия набор строк можно перечитывать через beforeFirst
+        rows.setAutoClose(false);
+        rows.addColumn("id", Types.INTEGER, 10, 0);
+        rows.addColumn("name", Types.VARCHAR, 50, 0);
+        rows.addColumn("description", Types.VARCHAR, 200, 0);
+        rows.addColumn("release_date", Types.DATE, 10, 0);
+        rows.addColumn("duration", Types.INTEGER, 10, 0);
+        rows.addColumn("mpa_id", Types.INTEGER, 10, 0);
+        rows.addColumn("like_count", Types.INTEGER, 10, 0);
+        rows.addColumn("version", Types.INTEGER, 10, 0);
+        for (Film film : films) {
+            rows.addRow(film.getId(), film.getName(), film.getDescription(), Date.valueOf(film.getReleaseDate()),
+                    film.getDuration(), film.getMpa().getId(), film.getRate(), film.getVersion());
+        }
+        // оба способа сериализации должны давать одинаковый ответ
+        if (jackson() != cachedFragments()) {
+            throw new IllegalStateException("Ответы Jackson и FilmJsonCache различаются");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void makeFilm(Blackhole blackhole) throws SQLException {
+        rows.beforeFirst();
+        int rowNum = 0;
+        while (rows.next()) {
+            blackhole.consume(Mapper.makeFilm(rows, rowNum++, referenceData));
+        }
+    }
+
+    @Benchmark
+    public int jackson() throws IOException {
+        out.reset();
+        objectMapper.writeValue(out, films);
+        return out.size();
+    }
+
+    @Benchmark
+    public int cachedFragments() throws IOException {
+        out.reset();
+        filmJsonCache.writeAll(films, out);
+        return out.size();
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// выборка рангов по закону Ципфа: вероятность ранга k пропорциональна 1 / k^exponent
+class PowerLaw {
+    private final double[] cdf;
+
+    PowerLaw(int size, double exponent) {
+        cdf = new double[size];
+        double sum = 0;
+        for (int rank = 1; rank <= size; rank++) {
+            sum += 1 / Math.pow(rank, exponent);
+            cdf[rank - 1] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cdf[i] /= sum;
+        }
+    }
+
+    // ранг от 0 до size - 1, малые ранги выпадают чаще
+    int sample(Random random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+    }
+
+    // степень вершины по Парето с показателем 2: среднее около mean, редкие вершины получают в разы больше связей
+    static int degree(Random random, double mean, int max) {
+        double min = mean / 2;
+        double degree = min / Math.sqrt(1 - random.nextDouble());
+        return (int) Math.min(max, Math.round(degree));
+    }
+
+    // случайная перестановка номеров от 1 до size: популярность не совпадает с порядком добавления
+    static int[] shuffledIds(Random random, int size) {
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = i + 1;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.dao.FriendsDao;
+import ru.yandex.practicum.filmorate.dao.LikesDao;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.FilmDbStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// запросы хранилища напрямую к базе, без кэшей поверх FilmStorage
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StorageBenchmark {
+    @Param({"1000", "10000"})
+    public int size;
+    private ConfigurableApplicationContext context;
+    private FilmDbStorage filmStorage;
+    private LikesDao likesDao;
+    private FriendsDao friendsDao;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkDataset.start(size);
+        filmStorage = context.getBean("FilmDbStorage", FilmDbStorage.class);
+        likesDao = context.getBean(LikesDao.class);
+        friendsDao = context.getBean(FriendsDao.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Film> getAll() {
+        return filmStorage.getAll();
+    }
+
+    @Benchmark
+    public Film getById() {
+        return filmStorage.getById(randomId());
+    }
+
+    // обновление существующего фильма: размер таблицы во время замера не меняется
+    @Benchmark
+    public Film save() {
+        int id = randomId();
+        Film film = new Film(id, "Фильм " + id, "Новое описание фильма номер " + id, LocalDate.of(2000, 1, 1), 100,
+                new TreeSet<>(Set.of(new Genre(id % 6 + 1, null), new Genre((id + 3) % 6 + 1, null))),
+                new Mpa(id % 5 + 1, null));
+        return filmStorage.save(film);
+    }
+
+    @Benchmark
+    public List<Film> getTop() {
+        return likesDao.getTop(10);
+    }
+
+    @Benchmark
+    public List<User> getCommonById() {
+        return friendsDao.getCommonById(randomId(), randomId());
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(size) + 1;
+    }
+}
@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// списки и страницы читаются из хранилища напрямую, кэшируются только обращения по id
+public class CachingFilmStorage implements FilmStorage {
+    private final FilmStorage delegate;
+    private final EntityCache<Film> cache;
+
+    public CachingFilmStorage(FilmStorage delegate, long maxWeightBytes, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>("films", maxWeightBytes, CachingFilmStorage::weigh, Film::getId, registry);
+    }
+
+    @Override
+    public List<Film> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        return delegate.getPage(afterId, limit);
+    }
+
+    @Override
+    public void forEach(Consumer<Film> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public Film getById(int id) {
+        return cache.get(id, this::load)
+                .orElseThrow(() -> new FilmNotFoundException(String.format("Фильм с id=%d не найден.", id)));
+    }
+
+    @Override
+    public boolean exists(int id) {
+        return cache.exists(id, delegate::exists);
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        return delegate.getExistingIds(ids);
+    }
+
+    @Override
+    public List<Film> getByIds(Collection<Integer> ids) {
+        return cache.getAll(ids, delegate::getByIds);
+    }
+
+    @Override
+    public Film save(Film film) {
+        try {
+            return delegate.save(film);
+        } finally {
+            cache.evict(film.getId());
+        }
+    }
+
+    @Override
+    public List<Integer> saveAll(List<Film> films) {
+        List<Integer> ids = delegate.saveAll(films);
+        cache.evictAll(ids);
+        return ids;
+    }
+
+    @Override
+    public void evict(int id) {
+        cache.evict(id);
+    }
+
+    private Optional<Film> load(int id) {
+        try {
+            return Optional.of(delegate.getById(id));
+        } catch (FilmNotFoundException ex) {
+            return Optional.empty();
+        }
+    }
+
+    private static int weigh(Film film) {
+        int chars = length(film.getName()) + length(film.getDescription());
+        return 128 + 2 * chars + 32 * film.getGenres().size();
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
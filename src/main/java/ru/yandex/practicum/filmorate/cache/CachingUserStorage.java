@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.UserStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public class CachingUserStorage implements UserStorage {
+    private final UserStorage delegate;
+    private final EntityCache<User> cache;
+
+    public CachingUserStorage(UserStorage delegate, long maxWeightBytes, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.cache = new EntityCache<>("users", maxWeightBytes, CachingUserStorage::weigh, User::getId, registry);
+    }
+
+    @Override
+    public List<User> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        return delegate.getPage(afterId, limit);
+    }
+
+    @Override
+    public User getById(int id) {
+        return cache.get(id, this::load)
+                .orElseThrow(() -> new UserNotFoundException(String.format("Пользователь с id=%d не найден.", id)));
+    }
+
+    @Override
+    public boolean exists(int id) {
+        return cache.exists(id, delegate::exists);
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        return delegate.getExistingIds(ids);
+    }
+
+    @Override
+    public List<User> getByIds(Collection<Integer> ids) {
+        return cache.getAll(ids, delegate::getByIds);
+    }
+
+    @Override
+    public User save(User user) {
+        try {
+            return delegate.save(user);
+        } finally {
+            cache.evict(user.getId());
+        }
+    }
+
+    @Override
+    public List<Integer> saveAll(List<User> users) {
+        List<Integer> ids = delegate.saveAll(users);
+        cache.evictAll(ids);
+        return ids;
+    }
+
+    @Override
+    public void evict(int id) {
+        cache.evict(id);
+    }
+
+    private Optional<User> load(int id) {
+        try {
+            return Optional.of(delegate.getById(id));
+        } catch (UserNotFoundException ex) {
+            return Optional.empty();
+        }
+    }
+
+    private static int weigh(User user) {
+        int chars = length(user.getEmail()) + length(user.getLogin()) + length(user.getName());
+        return 128 + 2 * chars;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+}
@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ru.yandex.practicum.filmorate.jfr.CacheEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.ToIntFunction;
+
+// кэш сущностей по id, отсутствующие id тоже запоминаются; вытеснение W-TinyLFU по примерному объему в байтах
+class EntityCache<T> {
+    // пустая запись для отсутствующего id
+    private static final int MISSING_WEIGHT = 64;
+    private final String name;
+    private final Cache<Integer, Optional<T>> cache;
+    private final ToIntFunction<T> idOf;
+    // растет при каждом вытеснении; пакетная загрузка, пересекшаяся с вытеснением, не остается в кэше
+    private final AtomicLong invalidations = new AtomicLong();
+
+    EntityCache(String name, long maxWeightBytes, ToIntFunction<T> weigher, ToIntFunction<T> idOf,
+                MeterRegistry registry) {
+        this.name = name;
+        this.idOf = idOf;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .<Integer, Optional<T>>weigher((id, value) -> value.map(weigher::applyAsInt).orElse(MISSING_WEIGHT))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+    }
+
+    Optional<T> get(int id, IntFunction<Optional<T>> loader) {
+        CacheEvent event = new CacheEvent();
+        // загрузка по одному ключу атомарна относительно invalidate того же ключа
+        if (!event.isEnabled()) {
+            return cache.get(id, loader::apply);
+        }
+        event.begin();
+        boolean[] loaded = new boolean[1];
+        Optional<T> value = cache.get(id, key -> {
+            loaded[0] = true;
+            return loader.apply(key);
+        });
+        event.commit(name, "get", 1, loaded[0] ? 0 : 1);
+        return value;
+    }
+
+    // порядок результата совпадает с порядком ids, отсутствующие id пропускаются
+    List<T> getAll(Collection<Integer> ids, Function<List<Integer>, List<T>> loader) {
+        CacheEvent event = new CacheEvent();
+        event.begin();
+        Set<Integer> distinctIds = new LinkedHashSet<>(ids);
+        Map<Integer, Optional<T>> found = new HashMap<>(cache.getAllPresent(distinctIds));
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : distinctIds) {
+            if (!found.containsKey(id)) {
+                missingIds.add(id);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            long generation = invalidations.get();
+            Map<Integer, Optional<T>> loaded = new HashMap<>();
+            for (Integer id : missingIds) {
+                loaded.put(id, Optional.empty());
+            }
+            for (T entity : loader.apply(missingIds)) {
+                loaded.put(idOf.applyAsInt(entity), Optional.of(entity));
+            }
+            store(loaded, generation);
+            found.putAll(loaded);
+        }
+        event.commit(name, "getAll", distinctIds.size(), distinctIds.size() - missingIds.size());
+        List<T> entities = new ArrayList<>(found.size());
+        for (Integer id : distinctIds) {
+            found.get(id).ifPresent(entities::add);
+        }
+        return entities;
+    }
+
+    // отсутствие id запоминается так же, как результат пакетной загрузки
+    boolean exists(int id, IntPredicate loader) {
+        CacheEvent event = new CacheEvent();
+        event.begin();
+        Optional<T> value = cache.getIfPresent(id);
+        event.commit(name, "exists", 1, value == null ? 0 : 1);
+        if (value != null) {
+            return value.isPresent();
+        }
+        long generation = invalidations.get();
+        boolean exists = loader.test(id);
+        if (!exists) {
+            store(Map.of(id, Optional.empty()), generation);
+        }
+        return exists;
+    }
+
+    void evict(int id) {
+        invalidations.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    void evictAll(Collection<Integer> ids) {
+        invalidations.incrementAndGet();
+        cache.invalidateAll(ids);
+    }
+
+    // счетчик увеличивается до invalidate, поэтому вытеснение, пропущенное проверкой, удалит записанное само
+    private void store(Map<Integer, Optional<T>> loaded, long generation) {
+        cache.putAll(loaded);
+        if (invalidations.get() != generation) {
+            cache.invalidateAll(loaded.keySet());
+        }
+    }
+}
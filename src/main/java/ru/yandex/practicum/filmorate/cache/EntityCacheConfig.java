@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.repository.UserStorage;
+
+// хранилища, которые используют сервисы: с кэшем или без, в зависимости от настроек профиля
+@Configuration
+@Slf4j
+public class EntityCacheConfig {
+    @Bean("filmStorage")
+    public FilmStorage filmStorage(@Qualifier("FilmDbStorage") FilmStorage filmDbStorage, MeterRegistry registry,
+                                   @Value("${filmorate.cache.entities.enabled}") boolean enabled,
+                                   @Value("${filmorate.cache.entities.max-weight-bytes}") long maxWeightBytes) {
+        if (!enabled) {
+            return filmDbStorage;
+        }
+        log.info("Кэш фильмов включен, объем до {} байт", maxWeightBytes);
+        return new CachingFilmStorage(filmDbStorage, maxWeightBytes, registry);
+    }
+
+    @Bean("userStorage")
+    public UserStorage userStorage(@Qualifier("UserDbStorage") UserStorage userDbStorage, MeterRegistry registry,
+                                   @Value("${filmorate.cache.entities.enabled}") boolean enabled,
+                                   @Value("${filmorate.cache.entities.max-weight-bytes}") long maxWeightBytes) {
+        if (!enabled) {
+            return userDbStorage;
+        }
+        log.info("Кэш пользователей включен, объем до {} байт", maxWeightBytes);
+        return new CachingUserStorage(userDbStorage, maxWeightBytes, registry);
+    }
+}
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ru.yandex.practicum.filmorate.jfr.CacheEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+
+// готовый JSON фильмов; фрагмент помечен версией строки и рейтингом фильма, поэтому обновление
+// или новый лайк сбрасывают его без явной инвалидации
+public class FilmJsonCache {
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+    private final ObjectWriter writer;
+    private final Cache<Integer, Fragment> fragments;
+
+    public FilmJsonCache(ObjectMapper objectMapper, long maxWeightBytes, MeterRegistry registry) {
+        this.writer = objectMapper.writerFor(Film.class);
+        this.fragments = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .<Integer, Fragment>weigher((id, fragment) -> ENTRY_OVERHEAD_BYTES + 2 * fragment.json.length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, fragments, "film-json");
+    }
+
+    public byte[] toJson(Film film) {
+        CacheEvent event = new CacheEvent();
+        event.begin();
+        Fragment fragment = fragments.getIfPresent(film.getId());
+        if (fragment != null && fragment.version == film.getVersion() && fragment.rate == film.getRate()) {
+            event.commit("film-json", "toJson", 1, 1);
+            return fragment.json;
+        }
+        byte[] json;
+        try {
+            json = writer.writeValueAsBytes(film);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        fragments.put(film.getId(), new Fragment(film.getVersion(), film.getRate(), json));
+        event.commit("film-json", "toJson", 1, 0);
+        return json;
+    }
+
+    public void write(Film film, OutputStream out) throws IOException {
+        out.write(toJson(film));
+    }
+
+    public void writeAll(Collection<Film> films, OutputStream out) throws IOException {
+        out.write('[');
+        boolean first = true;
+        for (Film film : films) {
+            if (!first) {
+                out.write(',');
+            }
+            out.write(toJson(film));
+            first = false;
+        }
+        out.write(']');
+    }
+
+    private static class Fragment {
+        private final int version;
+        private final int rate;
+        private final byte[] json;
+
+        private Fragment(int version, int rate, byte[] json) {
+            this.version = version;
+            this.rate = rate;
+            this.json = json;
+        }
+    }
+}
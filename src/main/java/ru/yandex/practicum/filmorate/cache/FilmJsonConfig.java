@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty("filmorate.films.json-cache.enabled")
+@Slf4j
+public class FilmJsonConfig implements WebMvcConfigurer {
+    private final ObjectMapper objectMapper;
+    private final FilmJsonCache filmJsonCache;
+
+    public FilmJsonConfig(ObjectMapper objectMapper, MeterRegistry registry,
+                          @Value("${filmorate.films.json-cache.max-weight-bytes}") long maxWeightBytes) {
+        this.objectMapper = objectMapper;
+        this.filmJsonCache = new FilmJsonCache(objectMapper, maxWeightBytes, registry);
+        log.info("Кэш JSON фильмов включен, объем до {} байт", maxWeightBytes);
+    }
+
+    @Bean
+    public FilmJsonCache filmJsonCache() {
+        return filmJsonCache;
+    }
+
+    // конвертер фильмов встает на место стандартного конвертера Jackson
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.replaceAll(converter -> converter instanceof MappingJackson2HttpMessageConverter
+                ? new FilmJsonHttpMessageConverter(objectMapper, filmJsonCache) : converter);
+    }
+}
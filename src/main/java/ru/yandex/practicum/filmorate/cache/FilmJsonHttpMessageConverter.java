@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+// заменяет стандартный конвертер Jackson: фильмы и списки фильмов отдает из готовых фрагментов,
+// чтение запросов и остальные ответы остаются за Jackson
+public class FilmJsonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+    private final FilmJsonCache filmJsonCache;
+
+    public FilmJsonHttpMessageConverter(ObjectMapper objectMapper, FilmJsonCache filmJsonCache) {
+        super(objectMapper);
+        this.filmJsonCache = filmJsonCache;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        if (body instanceof Film) {
+            filmJsonCache.write((Film) body, outputMessage.getBody());
+        } else if (body instanceof Collection && isFilmCollection(type)) {
+            filmJsonCache.writeAll((Collection<Film>) body, outputMessage.getBody());
+        } else {
+            super.writeInternal(body, type, outputMessage);
+        }
+    }
+
+    private static boolean isFilmCollection(Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return false;
+        }
+        ParameterizedType parameterized = (ParameterizedType) type;
+        return parameterized.getRawType() instanceof Class
+                && Collection.class.isAssignableFrom((Class<?>) parameterized.getRawType())
+                && parameterized.getActualTypeArguments()[0] == Film.class;
+    }
+}
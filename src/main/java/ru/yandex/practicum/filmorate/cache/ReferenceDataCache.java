@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.GenreDao;
+import ru.yandex.practicum.filmorate.dao.MpaDao;
+import ru.yandex.practicum.filmorate.exception.GenreNotFoundException;
+import ru.yandex.practicum.filmorate.exception.MpaNotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ReferenceDataCache {
+    private final GenreDao genreDao;
+    private final MpaDao mpaDao;
+    private volatile Snapshot snapshot = new Snapshot(List.of(), List.of());
+
+    @PostConstruct
+    public void refresh() {
+        snapshot = new Snapshot(genreDao.getAll(), mpaDao.getAll());
+        log.info("Загружены справочники: {} жанров, {} рейтингов",
+                snapshot.genres.size(), snapshot.mpa.size());
+    }
+
+    public List<Genre> getAllGenres() {
+        return snapshot.genres;
+    }
+
+    public Genre getGenre(int id) {
+        Genre[] genresById = snapshot.genresById;
+        if (id <= 0 || id >= genresById.length || genresById[id] == null) {
+            throw new GenreNotFoundException(String.format("Жанр с id=%d не найден.", id));
+        }
+        return genresById[id];
+    }
+
+    public List<Mpa> getAllMpa() {
+        return snapshot.mpa;
+    }
+
+    public Mpa getMpa(int id) {
+        Mpa[] mpaById = snapshot.mpaById;
+        if (id <= 0 || id >= mpaById.length || mpaById[id] == null) {
+            throw new MpaNotFoundException(String.format("Рейтинг с id=%d не найден.", id));
+        }
+        return mpaById[id];
+    }
+
+    private static class Snapshot {
+        private final List<Genre> genres;
+        private final Genre[] genresById;
+        private final List<Mpa> mpa;
+        private final Mpa[] mpaById;
+
+        private Snapshot(List<Genre> genres, List<Mpa> mpa) {
+            this.genres = List.copyOf(genres);
+            this.mpa = List.copyOf(mpa);
+            genresById = new Genre[genres.stream().mapToInt(Genre::getId).max().orElse(0) + 1];
+            for (Genre genre : genres) {
+                genresById[genre.getId()] = genre;
+            }
+            mpaById = new Mpa[mpa.stream().mapToInt(Mpa::getId).max().orElse(0) + 1];
+            for (Mpa rating : mpa) {
+                mpaById[rating.getId()] = rating;
+            }
+        }
+    }
+}
@@ -10,10 +10,13 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exception.GenreNotFoundException;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.exception.MpaNotFoundException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.Response;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
 import java.util.StringJoiner;
 
 @RestControllerAdvice
@@ -38,6 +41,22 @@ public class ExceptionControllerHandler {
         return new Response(message);
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Response handleConstraintViolationException(ConstraintViolationException ex) {
+        StringJoiner joiner = new StringJoiner("; ");
+        for (ConstraintViolation<?> violation : ex.getConstraintViolations()) {
+            String path = violation.getPropertyPath().toString();
+            String field = path.substring(path.indexOf('.') + 1); // без имени метода контроллера
+            joiner.add("Неверно заполнено поле " + field + ": " + violation.getMessage());
+        }
+        String message = joiner.toString();
+        log.error("Получен запрос с некорректными данными.");
+        log.error(message);
+
+        return new Response(message);
+    }
+
     @ExceptionHandler
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public Response handleHttpMessageNotReadableException(HttpMessageNotReadableException ex) {
@@ -45,6 +64,13 @@ public class ExceptionControllerHandler {
         return new Response(ex.getMessage());
     }
 
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Response handleIncorrectParameterException(IncorrectParameterException ex) {
+        log.error(ex.getMessage());
+        return new Response(ex.getMessage());
+    }
+
     @ExceptionHandler({UserNotFoundException.class, FilmNotFoundException.class,
             GenreNotFoundException.class, MpaNotFoundException.class})
     @ResponseStatus(HttpStatus.NOT_FOUND)
@@ -1,25 +1,84 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeResult;
+import ru.yandex.practicum.filmorate.model.Lookup;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Positive;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/films")
+@Validated
 @Slf4j
 @RequiredArgsConstructor
 public class FilmController {
+    private static final String NDJSON = "application/x-ndjson";
     private final FilmService service;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public List<Film> getAll() {
-        log.info("Получен запрос GET /films");
-        return service.getAllFilms();
+    public ResponseEntity<List<Film>> getAll(@RequestParam(required = false) Integer after,
+                                             @RequestParam(required = false) Integer limit,
+                                             @RequestParam(required = false) List<Integer> ids) {
+        if (ids != null) {
+            log.info("Получен запрос GET /films?ids={}", ids);
+            Lookup<Film> films = service.getFilms(ids);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (!films.getMissingIds().isEmpty()) {
+                response.header(Lookup.MISSING_IDS_HEADER,
+                        StringUtils.collectionToCommaDelimitedString(films.getMissingIds()));
+            }
+            return response.body(films.getItems());
+        }
+        if (after == null && limit == null) {
+            log.info("Получен запрос GET /films");
+            return ResponseEntity.ok(service.getAllFilms());
+        }
+        log.info("Получен запрос GET /films?after={}&limit={}", after, limit);
+        Page<Film> page = service.getFilmsPage(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(Page.NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
+    }
+
+    @GetMapping(value = "/export", produces = NDJSON)
+    public StreamingResponseBody export() {
+        log.info("Получен запрос GET /films/export");
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return out -> {
+            // без разделителя корневых значений, иначе каждая строка после первой начиналась бы с пробела
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                    .setRootValueSeparator(null)) {
+                service.exportFilms(film -> {
+                    try {
+                        writer.writeValue(generator, film);
+                        generator.writeRaw('\n');
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
     }
 
     @GetMapping("/{id}")
@@ -34,6 +93,12 @@ public class FilmController {
         return service.addFilm(film);
     }
 
+    @PostMapping("/batch")
+    public List<Integer> addBatch(@RequestBody List<@Valid Film> films) {
+        log.info("Получен запрос POST /films/batch на {} фильмов", films.size());
+        return service.addFilms(films);
+    }
+
     @PutMapping
     public Film updateFilm(@Valid @RequestBody Film film) {
         log.info("Получен запрос PUT /films");
@@ -52,8 +117,20 @@ public class FilmController {
         service.deleteLike(id, userId);
     }
 
+    @GetMapping("/{id}/similar")
+    public List<Film> getSimilar(@PathVariable int id, @RequestParam(defaultValue = "10") int count) {
+        log.info("Получен запрос GET /films/{}/similar?count={}", id, count);
+        return service.getSimilarFilms(id, count);
+    }
+
+    @PostMapping("/likes/batch")
+    public List<LikeResult> applyLikes(@RequestBody List<@Valid LikeOperation> operations) {
+        log.info("Получен запрос POST /films/likes/batch на {} операций", operations.size());
+        return service.applyLikes(operations);
+    }
+
     @GetMapping("/popular")
-    public List<Film> getTopLikes(@RequestParam(defaultValue = "10") int count) {
+    public List<Film> getTopLikes(@RequestParam(defaultValue = "10") @Positive int count) {
         log.info("Получен запрос GET /films/popular");
         return service.getTopLikes(count);
     }
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.RecordingStatus;
+import ru.yandex.practicum.filmorate.service.FlightRecorderService;
+
+// управление записью выключено по умолчанию: включается только там, где доступ к /admin закрыт
+@RestController
+@RequestMapping("/admin/jfr")
+@ConditionalOnProperty("filmorate.jfr.admin.enabled")
+@Slf4j
+@RequiredArgsConstructor
+public class FlightRecorderController {
+    private final FlightRecorderService service;
+
+    @GetMapping
+    public RecordingStatus getStatus() {
+        log.info("Получен запрос GET /admin/jfr");
+        return service.getStatus();
+    }
+
+    @PostMapping("/start")
+    public RecordingStatus start(@RequestParam(defaultValue = "default") String settings) {
+        log.info("Получен запрос POST /admin/jfr/start?settings={}", settings);
+        return service.start(settings);
+    }
+
+    @PostMapping("/dump")
+    public RecordingStatus dump() {
+        log.info("Получен запрос POST /admin/jfr/dump");
+        return service.dump();
+    }
+
+    @PostMapping("/stop")
+    public RecordingStatus stop() {
+        log.info("Получен запрос POST /admin/jfr/stop");
+        return service.stop();
+    }
+}
@@ -2,6 +2,8 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -10,23 +12,25 @@ import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/genres")
 @Slf4j
 @RequiredArgsConstructor
 public class GenreController {
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic();
     private final GenreService service;
 
     @GetMapping
-    public List<Genre> getAll() {
+    public ResponseEntity<List<Genre>> getAll() {
         log.info("Получен запрос GET /genres");
-        return service.getAllGenres();
+        return ResponseEntity.ok().cacheControl(CACHE_CONTROL).body(service.getAllGenres());
     }
 
     @GetMapping("/{id}")
-    public Genre get(@PathVariable int id) {
+    public ResponseEntity<Genre> get(@PathVariable int id) {
         log.info("Получен запрос GET /genres/" + id);
-        return service.getGenreById(id);
+        return ResponseEntity.ok().cacheControl(CACHE_CONTROL).body(service.getGenreById(id));
     }
 }
\ No newline at end of file
@@ -2,6 +2,8 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -10,23 +12,25 @@ import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/mpa")
 @Slf4j
 @RequiredArgsConstructor
 public class MpaController {
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic();
     private final MpaService service;
 
     @GetMapping
-    public List<Mpa> getAll() {
+    public ResponseEntity<List<Mpa>> getAll() {
         log.info("Получен запрос GET /mpa");
-        return service.getAllMpa();
+        return ResponseEntity.ok().cacheControl(CACHE_CONTROL).body(service.getAllMpa());
     }
 
     @GetMapping("/{id}")
-    public Mpa get(@PathVariable int id) {
+    public ResponseEntity<Mpa> get(@PathVariable int id) {
         log.info("Получен запрос GET /mpa/" + id);
-        return service.getMpaById(id);
+        return ResponseEntity.ok().cacheControl(CACHE_CONTROL).body(service.getMpaById(id));
     }
 }
\ No newline at end of file
@@ -2,8 +2,15 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Lookup;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
@@ -11,15 +18,38 @@ import java.util.List;
 
 @RestController
 @RequestMapping("/users")
+@Validated
 @Slf4j
 @RequiredArgsConstructor
 public class UserController {
     private final UserService service;
+    private final FilmService filmService;
 
     @GetMapping
-    public List<User> getAll() {
-        log.info("Получен запрос GET /users");
-        return service.getAllUsers();
+    public ResponseEntity<List<User>> getAll(@RequestParam(required = false) Integer after,
+                                             @RequestParam(required = false) Integer limit,
+                                             @RequestParam(required = false) List<Integer> ids) {
+        if (ids != null) {
+            log.info("Получен запрос GET /users?ids={}", ids);
+            Lookup<User> users = service.getUsers(ids);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (!users.getMissingIds().isEmpty()) {
+                response.header(Lookup.MISSING_IDS_HEADER,
+                        StringUtils.collectionToCommaDelimitedString(users.getMissingIds()));
+            }
+            return response.body(users.getItems());
+        }
+        if (after == null && limit == null) {
+            log.info("Получен запрос GET /users");
+            return ResponseEntity.ok(service.getAllUsers());
+        }
+        log.info("Получен запрос GET /users?after={}&limit={}", after, limit);
+        Page<User> page = service.getUsersPage(after, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(Page.NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
     }
 
     @GetMapping("/{id}")
@@ -34,6 +64,12 @@ public class UserController {
         return service.addUser(user);
     }
 
+    @PostMapping("/batch")
+    public List<Integer> addBatch(@RequestBody List<@Valid User> users) {
+        log.info("Получен запрос POST /users/batch на {} пользователей", users.size());
+        return service.addUsers(users);
+    }
+
     @PutMapping
     public User update(@Valid @RequestBody User user) {
         log.info("Получен запрос PUT /users");
@@ -58,6 +94,18 @@ public class UserController {
         return service.getAllFriends(id);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable int id, @RequestParam(defaultValue = "10") int limit) {
+        log.info("Получен запрос GET /users/{}/friends/suggestions?limit={}", id, limit);
+        return service.getFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable int id, @RequestParam(defaultValue = "10") int limit) {
+        log.info("Получен запрос GET /users/{}/recommendations?limit={}", id, limit);
+        return filmService.getRecommendations(id, limit);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable int id, @PathVariable int otherId) {
         log.info("Получен запрос GET /users/{}/friends/common/{}", id, otherId);
@@ -1,13 +1,18 @@
 package ru.yandex.practicum.filmorate.dao;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 
 import java.util.List;
 
 public interface LikesDao {
-    void save(int id, int userId);
+    boolean save(int id, int userId);
 
-    void delete(int id, int userId);
+    boolean delete(int id, int userId);
+
+    boolean[] applyBatch(List<LikeOperation> operations);
+
+    boolean exists(int id, int userId);
 
     List<Film> getTop(int count);
 
@@ -1,41 +1,78 @@
 package ru.yandex.practicum.filmorate.dao.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.dao.FriendsDao;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.util.Mapper;
+import ru.yandex.practicum.filmorate.util.Transactions;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 public class FriendsDaoImpl implements FriendsDao {
+    private static final int CHUNK_SIZE = 1000;
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final FriendGraph friendGraph;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public void save(int userId, int friendId) {
-        String sql = "INSERT INTO friends (user_id, friend_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, userId, friendId);
+        String sql = "INSERT INTO friends (user_id, friend_id) SELECT ?, ? " +
+                "WHERE NOT EXISTS (SELECT 1 FROM friends WHERE user_id = ? AND friend_id = ?)";
+        // изменения одного пользователя упорядочены, чтобы граф применял их в том же порядке, что и база
+        synchronized (friendGraph.lockFor(userId)) {
+            transactionTemplate.executeWithoutResult(status -> {
+                try {
+                    jdbcTemplate.update(sql, userId, friendId, userId, friendId);
+                } catch (DuplicateKeyException ex) {
+                    // такая же дружба параллельно добавлена другим запросом
+                }
+                Transactions.afterCommit(() -> friendGraph.add(userId, friendId));
+            });
+        }
     }
 
     @Override
     public void delete(int userId, int friendId) {
         String sql = "DELETE FROM friends WHERE user_id = ? AND friend_id = ?";
-        jdbcTemplate.update(sql, userId, friendId);
+        synchronized (friendGraph.lockFor(userId)) {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(sql, userId, friendId);
+                Transactions.afterCommit(() -> friendGraph.remove(userId, friendId));
+            });
+        }
     }
 
     @Override
     public List<User> getAllById(int userId) {
-        String sql = "SELECT * FROM users AS u, friends AS f WHERE u.id = f.friend_id AND f.user_id = ?";
+        String sql = "SELECT u.* FROM users AS u, friends AS f WHERE u.id = f.friend_id AND f.user_id = ? " +
+                "ORDER BY f._ROWID_";
         return jdbcTemplate.query(sql, Mapper::makeUser, userId);
     }
 
     @Override
     public List<User> getCommonById(int userId, int otherId) {
-        String sql = "SELECT * FROM users AS u, friends AS f, friends AS o " +
-                "WHERE u.id = f.friend_id AND u.id = o.friend_id AND f.user_id = ? AND o.user_id = ?";
-        return jdbcTemplate.query(sql, Mapper::makeUser, userId, otherId);
+        List<Integer> ids = Arrays.stream(friendGraph.getCommon(userId, otherId))
+                .boxed()
+                .collect(Collectors.toList());
+        String sql = "SELECT * FROM users WHERE id IN (:ids) ORDER BY id";
+        List<User> users = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+            users.addAll(namedJdbcTemplate.query(sql, new MapSqlParameterSource("ids", chunk), Mapper::makeUser));
+        }
+        return users;
     }
 }
\ No newline at end of file
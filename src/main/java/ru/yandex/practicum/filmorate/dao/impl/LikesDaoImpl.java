@@ -1,43 +1,158 @@
 package ru.yandex.practicum.filmorate.dao.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.dao.GenreDao;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.dao.LikesDao;
-import ru.yandex.practicum.filmorate.dao.MpaDao;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.util.Mapper;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.repository.FilmLoader;
+import ru.yandex.practicum.filmorate.util.Transactions;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 public class LikesDaoImpl implements LikesDao {
     private final JdbcTemplate jdbcTemplate;
-    private final GenreDao genreDao;
-    private final MpaDao mpaDao;
+    private final FilmLoader filmLoader;
+    private final LikesMatrix likesMatrix;
+    private final TransactionTemplate transactionTemplate;
 
+    // лайки одного пользователя упорядочены: транзакция фиксируется и матрица меняется под одной блокировкой,
+    // поэтому матрица применяет их в том же порядке, что и база, и не видит откаченных изменений
     @Override
-    public void save(int id, int userId) {
-        String sql = "INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, id, userId);
+    public boolean save(int id, int userId) {
+        String sql = "INSERT INTO likes (film_id, user_id) SELECT ?, ? " +
+                "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+        synchronized (likesMatrix.lockFor(userId)) {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                int inserted;
+                try {
+                    inserted = jdbcTemplate.update(sql, id, userId, id, userId);
+                } catch (DuplicateKeyException ex) {
+                    inserted = 0; // такой же лайк параллельно вставлен другим запросом
+                }
+                if (inserted > 0) {
+                    String sqlUpdateCount = "UPDATE films SET like_count = like_count + 1 WHERE id = ?";
+                    jdbcTemplate.update(sqlUpdateCount, id);
+                    Transactions.afterCommit(() -> likesMatrix.add(id, userId));
+                }
+                return inserted > 0;
+            }));
+        }
     }
 
     @Override
-    public void delete(int id, int userId) {
+    public boolean delete(int id, int userId) {
         String sql = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, id, userId);
+        synchronized (likesMatrix.lockFor(userId)) {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                int deleted = jdbcTemplate.update(sql, id, userId);
+                if (deleted > 0) {
+                    String sqlUpdateCount = "UPDATE films SET like_count = like_count - ? WHERE id = ?";
+                    jdbcTemplate.update(sqlUpdateCount, deleted, id);
+                    Transactions.afterCommit(() -> likesMatrix.remove(id, userId));
+                }
+                return deleted > 0;
+            }));
+        }
+    }
+
+    @Override
+    public boolean[] applyBatch(List<LikeOperation> operations) {
+        Object[] locks = likesMatrix.locksFor(operations.stream()
+                .map(LikeOperation::getUserId)
+                .collect(Collectors.toList()));
+        return withLocks(locks, 0, () -> transactionTemplate.execute(status -> applyLocked(operations)));
+    }
+
+    @Override
+    public boolean exists(int id, int userId) {
+        String sql = "SELECT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, id, userId));
     }
 
     @Override
     public List<Film> getTop(int count) {
-        String sql = "SELECT f.* FROM films AS f " +
-                "LEFT JOIN likes AS l ON f.id = l.film_id " +
-                "GROUP BY f.id ORDER BY COUNT(l.user_id) DESC LIMIT ?";
-        return jdbcTemplate.query(sql, this::makeFilm, count);
+        String sql = FilmLoader.SELECT_FILMS + "ORDER BY f.like_count DESC, f.id LIMIT :count";
+        return filmLoader.query(sql, new MapSqlParameterSource("count", count));
+    }
+
+    private boolean[] applyLocked(List<LikeOperation> operations) {
+        List<LikeOperation> likes = new ArrayList<>();
+        List<LikeOperation> unlikes = new ArrayList<>();
+        for (LikeOperation operation : operations) {
+            (operation.getAction() == LikeOperation.Action.LIKE ? likes : unlikes).add(operation);
+        }
+        String sqlInsert = "INSERT INTO likes (film_id, user_id) SELECT ?, ? " +
+                "WHERE NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?)";
+        int[] inserted = batchUpdate(sqlInsert, likes, (ps, like) -> {
+            ps.setInt(1, like.getFilmId());
+            ps.setInt(2, like.getUserId());
+            ps.setInt(3, like.getFilmId());
+            ps.setInt(4, like.getUserId());
+        });
+        String sqlDelete = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+        int[] deleted = batchUpdate(sqlDelete, unlikes, (ps, unlike) -> {
+            ps.setInt(1, unlike.getFilmId());
+            ps.setInt(2, unlike.getUserId());
+        });
+
+        boolean[] applied = new boolean[operations.size()];
+        List<LikeOperation> changes = new ArrayList<>();
+        Map<Integer, Integer> deltas = new HashMap<>();
+        int likeIndex = 0;
+        int unlikeIndex = 0;
+        for (int i = 0; i < operations.size(); i++) {
+            LikeOperation operation = operations.get(i);
+            boolean like = operation.getAction() == LikeOperation.Action.LIKE;
+            applied[i] = (like ? inserted[likeIndex++] : deleted[unlikeIndex++]) > 0;
+            if (applied[i]) {
+                changes.add(operation);
+                deltas.merge(operation.getFilmId(), like ? 1 : -1, Integer::sum);
+            }
+        }
+        // счетчик каждого фильма обновляется один раз на пакет
+        List<Object[]> counts = deltas.entrySet().stream()
+                .filter(delta -> delta.getValue() != 0)
+                .map(delta -> new Object[]{delta.getValue(), delta.getKey()})
+                .collect(Collectors.toList());
+        if (!counts.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE films SET like_count = like_count + ? WHERE id = ?", counts);
+        }
+        // матрица догоняет базу только после фиксации всего пакета
+        if (!changes.isEmpty()) {
+            Transactions.afterCommit(() -> likesMatrix.apply(changes));
+        }
+        return applied;
+    }
+
+    private int[] batchUpdate(String sql, List<LikeOperation> operations,
+                              ParameterizedPreparedStatementSetter<LikeOperation> setter) {
+        if (operations.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(sql, operations, operations.size(), setter)[0];
+    }
+
+    private static <T> T withLocks(Object[] locks, int index, Supplier<T> action) {
+        if (index == locks.length) {
+            return action.get();
+        }
+        synchronized (locks[index]) {
+            return withLocks(locks, index + 1, action);
+        }
     }
 
     @Override
@@ -45,8 +160,4 @@ public class LikesDaoImpl implements LikesDao {
         String sql = "SELECT user_id FROM likes WHERE film_id = ?";
         return jdbcTemplate.queryForList(sql, Integer.class, filmId);
     }
-
-    private Film makeFilm(ResultSet rs, int rowNum) throws SQLException {
-        return Mapper.makeFilm(rs, rowNum, this, genreDao, mpaDao);
-    }
 }
\ No newline at end of file
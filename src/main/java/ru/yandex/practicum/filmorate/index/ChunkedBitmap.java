@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+// неизменяемое множество id из блоков по 4096 бит: изменение копирует только затронутый блок и массив ссылок на блоки,
+// а не все множество, поэтому лайк популярного фильма не зависит от числа его лайков
+final class ChunkedBitmap {
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+    private static final int CHUNK_WORDS = 1 << (CHUNK_SHIFT - 6);
+    private final long[][] chunks;
+    private final int cardinality;
+
+    private ChunkedBitmap(long[][] chunks, int cardinality) {
+        this.chunks = chunks;
+        this.cardinality = cardinality;
+    }
+
+    static ChunkedBitmap with(ChunkedBitmap current, int id) {
+        return edit(current).set(id).build();
+    }
+
+    static ChunkedBitmap without(ChunkedBitmap current, int id) {
+        return edit(current).clear(id).build();
+    }
+
+    static Editor edit(ChunkedBitmap current) {
+        return new Editor(current);
+    }
+
+    boolean get(int id) {
+        int chunkIndex = id >>> CHUNK_SHIFT;
+        if (chunkIndex >= chunks.length || chunks[chunkIndex] == null) {
+            return false;
+        }
+        return (chunks[chunkIndex][(id & CHUNK_MASK) >>> 6] & (1L << id)) != 0;
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    // первый id не меньше from или -1
+    int nextSetBit(int from) {
+        int chunkIndex = from >>> CHUNK_SHIFT;
+        int wordIndex = (from & CHUNK_MASK) >>> 6;
+        long mask = -1L << from;
+        for (; chunkIndex < chunks.length; chunkIndex++, wordIndex = 0, mask = -1L) {
+            long[] chunk = chunks[chunkIndex];
+            if (chunk == null) {
+                continue;
+            }
+            for (; wordIndex < CHUNK_WORDS; wordIndex++, mask = -1L) {
+                long word = chunk[wordIndex] & mask;
+                if (word != 0) {
+                    return (chunkIndex << CHUNK_SHIFT) | (wordIndex << 6) | Long.numberOfTrailingZeros(word);
+                }
+            }
+        }
+        return -1;
+    }
+
+    void forEach(IntConsumer action) {
+        for (int id = nextSetBit(0); id >= 0; id = nextSetBit(id + 1)) {
+            action.accept(id);
+        }
+    }
+
+    void orInto(BitSet target) {
+        forEach(target::set);
+    }
+
+    // накапливает изменения пакета: каждый блок копируется не более одного раза, результат публикуется через build
+    static final class Editor {
+        private final ChunkedBitmap original;
+        private long[][] chunks;
+        private int cardinality;
+        private BitSet copied;
+
+        private Editor(ChunkedBitmap original) {
+            this.original = original;
+            this.chunks = original == null ? new long[0][] : original.chunks;
+            this.cardinality = original == null ? 0 : original.cardinality;
+        }
+
+        Editor set(int id) {
+            long[] chunk = writableChunk(id >>> CHUNK_SHIFT, true);
+            int wordIndex = (id & CHUNK_MASK) >>> 6;
+            if ((chunk[wordIndex] & (1L << id)) == 0) {
+                chunk[wordIndex] |= 1L << id;
+                cardinality++;
+            }
+            return this;
+        }
+
+        Editor clear(int id) {
+            int chunkIndex = id >>> CHUNK_SHIFT;
+            int wordIndex = (id & CHUNK_MASK) >>> 6;
+            if (chunkIndex >= chunks.length || chunks[chunkIndex] == null
+                    || (chunks[chunkIndex][wordIndex] & (1L << id)) == 0) {
+                return this;
+            }
+            long[] chunk = writableChunk(chunkIndex, false);
+            chunk[wordIndex] &= ~(1L << id);
+            cardinality--;
+            if (isEmpty(chunk)) {
+                chunks[chunkIndex] = null;
+            }
+            return this;
+        }
+
+        // null, если множество стало пустым
+        ChunkedBitmap build() {
+            if (copied == null) {
+                return original;
+            }
+            if (cardinality == 0) {
+                return null;
+            }
+            int length = chunks.length;
+            while (chunks[length - 1] == null) {
+                length--;
+            }
+            return new ChunkedBitmap(length == chunks.length ? chunks : Arrays.copyOf(chunks, length), cardinality);
+        }
+
+        private long[] writableChunk(int chunkIndex, boolean grow) {
+            if (copied == null) {
+                chunks = Arrays.copyOf(chunks, grow ? Math.max(chunks.length, chunkIndex + 1) : chunks.length);
+                copied = new BitSet();
+            } else if (grow && chunkIndex >= chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(chunks.length * 2, chunkIndex + 1));
+            }
+            long[] chunk = chunks[chunkIndex];
+            if (chunk == null) {
+                chunks[chunkIndex] = new long[CHUNK_WORDS];
+                copied.set(chunkIndex);
+            } else if (!copied.get(chunkIndex)) {
+                chunks[chunkIndex] = chunk.clone();
+                copied.set(chunkIndex);
+            }
+            return chunks[chunkIndex];
+        }
+
+        private static boolean isEmpty(long[] chunk) {
+            for (long word : chunk) {
+                if (word != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FriendGraph {
+    private static final int[] EMPTY = new int[0];
+    private static final int LOCK_STRIPES = 64;
+    private final JdbcTemplate jdbcTemplate;
+    // отсортированные массивы id друзей; массив не изменяется после публикации, изменения создают копию
+    private final Map<Integer, int[]> friends = new ConcurrentHashMap<>();
+    private final Object[] locks = createLocks();
+
+    @PostConstruct
+    public synchronized void reload() {
+        Map<Integer, int[]> loaded = new ConcurrentHashMap<>();
+        int[] edges = new int[1];
+        IntBuffer buffer = new IntBuffer();
+        int[] currentUser = {-1};
+        jdbcTemplate.query("SELECT user_id, friend_id FROM friends ORDER BY user_id, friend_id", rs -> {
+            int userId = rs.getInt("user_id");
+            if (userId != currentUser[0]) {
+                if (currentUser[0] != -1) {
+                    loaded.put(currentUser[0], buffer.toArray());
+                }
+                currentUser[0] = userId;
+                buffer.clear();
+            }
+            buffer.add(rs.getInt("friend_id"));
+            edges[0]++;
+        });
+        if (currentUser[0] != -1) {
+            loaded.put(currentUser[0], buffer.toArray());
+        }
+        friends.clear();
+        friends.putAll(loaded);
+        log.info("Загружен граф друзей: {} пользователей, {} связей", loaded.size(), edges[0]);
+    }
+
+    public Object lockFor(int userId) {
+        return locks[Math.floorMod(userId, LOCK_STRIPES)];
+    }
+
+    // копирование массива стоит O(числа друзей) на каждое добавление, зато чтение и пересечение
+    // идут без блокировок по неизменяемому снимку; дружба меняется намного реже, чем читается
+    public void add(int userId, int friendId) {
+        friends.compute(userId, (id, current) -> {
+            int[] ids = current == null ? EMPTY : current;
+            int position = Arrays.binarySearch(ids, friendId);
+            if (position >= 0) {
+                return ids;
+            }
+            int insertAt = -position - 1;
+            int[] updated = new int[ids.length + 1];
+            System.arraycopy(ids, 0, updated, 0, insertAt);
+            updated[insertAt] = friendId;
+            System.arraycopy(ids, insertAt, updated, insertAt + 1, ids.length - insertAt);
+            return updated;
+        });
+    }
+
+    public void remove(int userId, int friendId) {
+        friends.computeIfPresent(userId, (id, ids) -> {
+            int position = Arrays.binarySearch(ids, friendId);
+            if (position < 0) {
+                return ids;
+            }
+            if (ids.length == 1) {
+                return null;
+            }
+            int[] updated = new int[ids.length - 1];
+            System.arraycopy(ids, 0, updated, 0, position);
+            System.arraycopy(ids, position + 1, updated, position, ids.length - position - 1);
+            return updated;
+        });
+    }
+
+    public int[] getFriends(int userId) {
+        return friends.getOrDefault(userId, EMPTY).clone();
+    }
+
+    public int[] getCommon(int userId, int otherId) {
+        int[] first = friends.getOrDefault(userId, EMPTY);
+        int[] second = friends.getOrDefault(otherId, EMPTY);
+        if (first.length > second.length) {
+            int[] swap = first;
+            first = second;
+            second = swap;
+        }
+        if (first.length == 0) {
+            return EMPTY;
+        }
+        // при сильно различающихся размерах меньший массив ищется в большем двоичным поиском
+        if ((long) first.length * (32 - Integer.numberOfLeadingZeros(second.length)) < second.length) {
+            return intersectBySearch(first, second);
+        }
+        return intersectByMerge(first, second);
+    }
+
+    public int[] suggest(int userId, int limit, int maxEdges) {
+        int[] direct = friends.getOrDefault(userId, EMPTY);
+        IntCounter mutual = new IntCounter();
+        int budget = maxEdges;
+        traversal:
+        for (int friendId : direct) {
+            for (int candidate : friends.getOrDefault(friendId, EMPTY)) {
+                // бюджет ограничивает обход для пользователей, чьи друзья сами имеют огромное число друзей
+                if (budget-- <= 0) {
+                    break traversal;
+                }
+                if (candidate != userId && Arrays.binarySearch(direct, candidate) < 0) {
+                    mutual.increment(candidate);
+                }
+            }
+        }
+        TopK top = new TopK(limit);
+        mutual.addTo(top);
+        return top.toArray();
+    }
+
+    private static int[] intersectByMerge(int[] first, int[] second) {
+        int[] result = new int[first.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] intersectBySearch(int[] small, int[] large) {
+        int[] result = new int[small.length];
+        int count = 0;
+        int from = 0;
+        for (int id : small) {
+            int position = Arrays.binarySearch(large, from, large.length, id);
+            if (position >= 0) {
+                result[count++] = id;
+                from = position + 1;
+            } else {
+                from = -position - 1;
+            }
+            if (from == large.length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static Object[] createLocks() {
+        Object[] locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    private static class IntBuffer {
+        private int[] values = new int[16];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.index;
+
+// счетчик по int-ключам с открытой адресацией, без упаковки ключей в Integer
+class IntCounter {
+    private int[] keys = new int[64];
+    private int[] counts = new int[64];
+    private int size;
+
+    void increment(int key) {
+        add(key, 1);
+    }
+
+    // delta должна быть положительной: нулевой счетчик означает свободную ячейку
+    void add(int key, int delta) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (counts[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        if (counts[index] == 0) {
+            keys[index] = key;
+            if (++size * 2 > keys.length) {
+                counts[index] = delta;
+                grow();
+                return;
+            }
+        }
+        counts[index] += delta;
+    }
+
+    void addTo(TopK top) {
+        for (int i = 0; i < keys.length; i++) {
+            if (counts[i] != 0) {
+                top.offer(counts[i], keys[i]);
+            }
+        }
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldCounts.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldCounts[i] != 0) {
+                int index = mix(oldKeys[i]) & mask;
+                while (counts[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                counts[index] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,281 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+@Component
+@Slf4j
+public class LikesMatrix {
+    private static final int[] EMPTY = new int[0];
+    private static final int LOCK_STRIPES = 64;
+    private static final int MIN_CHUNK_SIZE = 1024;
+    private final JdbcTemplate jdbcTemplate;
+    private final int parallelism;
+    private final ExecutorService executor;
+    // битовые множества не изменяются после публикации, изменение копирует только затронутый блок
+    private final Map<Integer, ChunkedBitmap> filmsByUser = new ConcurrentHashMap<>();
+    private final Map<Integer, ChunkedBitmap> usersByFilm = new ConcurrentHashMap<>();
+    private final Object[] locks = createLocks();
+
+    public LikesMatrix(JdbcTemplate jdbcTemplate,
+                       @Value("${filmorate.recommendations.parallelism}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "likes-matrix-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public synchronized void reload() {
+        Map<Integer, ChunkedBitmap.Editor> films = new HashMap<>();
+        Map<Integer, ChunkedBitmap.Editor> users = new HashMap<>();
+        int[] likes = new int[1];
+        jdbcTemplate.query("SELECT film_id, user_id FROM likes", rs -> {
+            int filmId = rs.getInt("film_id");
+            int userId = rs.getInt("user_id");
+            films.computeIfAbsent(userId, id -> ChunkedBitmap.edit(null)).set(filmId);
+            users.computeIfAbsent(filmId, id -> ChunkedBitmap.edit(null)).set(userId);
+            likes[0]++;
+        });
+        filmsByUser.clear();
+        films.forEach((userId, editor) -> filmsByUser.put(userId, editor.build()));
+        usersByFilm.clear();
+        users.forEach((filmId, editor) -> usersByFilm.put(filmId, editor.build()));
+        log.info("Загружена матрица лайков: {} пользователей, {} фильмов, {} лайков",
+                films.size(), users.size(), likes[0]);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public Object lockFor(int userId) {
+        return locks[Math.floorMod(userId, LOCK_STRIPES)];
+    }
+
+    // блокировки для нескольких пользователей в порядке номеров полос, чтобы пакеты не блокировали друг друга взаимно
+    public Object[] locksFor(Collection<Integer> userIds) {
+        return userIds.stream()
+                .mapToInt(userId -> Math.floorMod(userId, LOCK_STRIPES))
+                .distinct()
+                .sorted()
+                .mapToObj(stripe -> locks[stripe])
+                .toArray();
+    }
+
+    public void add(int filmId, int userId) {
+        filmsByUser.compute(userId, (id, films) -> ChunkedBitmap.with(films, filmId));
+        usersByFilm.compute(filmId, (id, users) -> ChunkedBitmap.with(users, userId));
+    }
+
+    public void remove(int filmId, int userId) {
+        filmsByUser.computeIfPresent(userId, (id, films) -> ChunkedBitmap.without(films, filmId));
+        usersByFilm.computeIfPresent(filmId, (id, users) -> ChunkedBitmap.without(users, userId));
+    }
+
+    // пакет применяется по порядку, но множество каждого пользователя и фильма копируется и публикуется один раз
+    public void apply(List<LikeOperation> operations) {
+        Map<Integer, List<LikeOperation>> byUser = new LinkedHashMap<>();
+        Map<Integer, List<LikeOperation>> byFilm = new LinkedHashMap<>();
+        for (LikeOperation operation : operations) {
+            byUser.computeIfAbsent(operation.getUserId(), id -> new ArrayList<>()).add(operation);
+            byFilm.computeIfAbsent(operation.getFilmId(), id -> new ArrayList<>()).add(operation);
+        }
+        byUser.forEach((userId, userOperations) -> filmsByUser.compute(userId, (id, films) -> {
+            ChunkedBitmap.Editor editor = ChunkedBitmap.edit(films);
+            userOperations.forEach(operation -> apply(editor, operation, operation.getFilmId()));
+            return editor.build();
+        }));
+        byFilm.forEach((filmId, filmOperations) -> usersByFilm.compute(filmId, (id, users) -> {
+            ChunkedBitmap.Editor editor = ChunkedBitmap.edit(users);
+            filmOperations.forEach(operation -> apply(editor, operation, operation.getUserId()));
+            return editor.build();
+        }));
+    }
+
+    public boolean contains(int filmId, int userId) {
+        ChunkedBitmap films = filmsByUser.get(userId);
+        return films != null && films.get(filmId);
+    }
+
+    public void forEachFilm(int userId, IntConsumer action) {
+        forEach(filmsByUser.get(userId), action);
+    }
+
+    public void forEachUser(int filmId, IntConsumer action) {
+        forEach(usersByFilm.get(filmId), action);
+    }
+
+    public int[] getFilmIds() {
+        return usersByFilm.keySet().stream()
+                .mapToInt(Integer::intValue)
+                .sorted()
+                .toArray();
+    }
+
+    public int[] recommend(int userId, int limit, int neighbours, long timeoutMillis) {
+        ChunkedBitmap liked = filmsByUser.get(userId);
+        if (liked == null) {
+            return EMPTY;
+        }
+        // ограничение времени общее для сбора кандидатов и их ранжирования
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        // соседи - все пользователи, у которых есть хотя бы один общий лайк
+        BitSet candidates = new BitSet();
+        int scanned = 0;
+        for (int filmId = liked.nextSetBit(0); filmId >= 0; filmId = liked.nextSetBit(filmId + 1)) {
+            if (System.nanoTime() - deadline > 0) {
+                // кандидаты, собранные по части фильмов, все равно дают рекомендации
+                log.warn("Сбор похожих пользователей не уложился в {} мс: просмотрено {} из {} фильмов",
+                        timeoutMillis, scanned, liked.cardinality());
+                break;
+            }
+            ChunkedBitmap users = usersByFilm.get(filmId);
+            if (users != null) {
+                users.orInto(candidates);
+            }
+            scanned++;
+        }
+        candidates.clear(userId);
+        int[] similar = findSimilar(liked, candidates.stream().toArray(), neighbours, timeoutMillis, deadline);
+        return scoreFilms(liked, similar, limit);
+    }
+
+    private int[] findSimilar(ChunkedBitmap liked, int[] candidates, int neighbours, long timeoutMillis,
+                              long deadline) {
+        if (candidates.length == 0) {
+            return EMPTY;
+        }
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (candidates.length + parallelism - 1) / parallelism);
+        List<Callable<TopK>> tasks = new ArrayList<>();
+        for (int from = 0; from < candidates.length; from += chunkSize) {
+            int start = from;
+            int end = Math.min(from + chunkSize, candidates.length);
+            tasks.add(() -> rankNeighbours(liked, candidates, start, end, neighbours));
+        }
+        List<Future<TopK>> futures;
+        try {
+            futures = executor.invokeAll(tasks, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return EMPTY;
+        }
+        // при превышении времени используются только успевшие завершиться части
+        TopK top = new TopK(neighbours);
+        int timedOut = 0;
+        for (Future<TopK> future : futures) {
+            try {
+                top.addAll(future.get());
+            } catch (CancellationException | ExecutionException ex) {
+                timedOut++;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (timedOut > 0) {
+            log.warn("Поиск похожих пользователей не уложился в {} мс: пропущено {} из {} частей",
+                    timeoutMillis, timedOut, futures.size());
+        }
+        return top.toArray();
+    }
+
+    private TopK rankNeighbours(ChunkedBitmap liked, int[] candidates, int from, int to, int neighbours) {
+        TopK top = new TopK(neighbours);
+        for (int i = from; i < to; i++) {
+            if ((i & 0xFF) == 0 && Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            ChunkedBitmap films = filmsByUser.get(candidates[i]);
+            if (films == null) {
+                continue;
+            }
+            int overlap = overlap(liked, films);
+            if (overlap > 0) {
+                top.offer(overlap, candidates[i]);
+            }
+        }
+        return top;
+    }
+
+    private int[] scoreFilms(ChunkedBitmap liked, int[] similar, int limit) {
+        IntCounter scores = new IntCounter();
+        for (int neighbourId : similar) {
+            ChunkedBitmap films = filmsByUser.get(neighbourId);
+            if (films == null) {
+                continue;
+            }
+            int weight = overlap(liked, films);
+            for (int filmId = films.nextSetBit(0); filmId >= 0; filmId = films.nextSetBit(filmId + 1)) {
+                if (!liked.get(filmId)) {
+                    scores.add(filmId, weight);
+                }
+            }
+        }
+        TopK top = new TopK(limit);
+        scores.addTo(top);
+        return top.toArray();
+    }
+
+    private static int overlap(ChunkedBitmap first, ChunkedBitmap second) {
+        ChunkedBitmap small = first.cardinality() <= second.cardinality() ? first : second;
+        ChunkedBitmap large = small == first ? second : first;
+        int count = 0;
+        for (int id = small.nextSetBit(0); id >= 0; id = small.nextSetBit(id + 1)) {
+            if (large.get(id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void forEach(ChunkedBitmap ids, IntConsumer action) {
+        if (ids != null) {
+            ids.forEach(action);
+        }
+    }
+
+    private static void apply(ChunkedBitmap.Editor editor, LikeOperation operation, int id) {
+        if (operation.getAction() == LikeOperation.Action.LIKE) {
+            editor.set(id);
+        } else {
+            editor.clear(id);
+        }
+    }
+
+    private static Object[] createLocks() {
+        Object[] locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PopularityIndex {
+    private final JdbcTemplate jdbcTemplate;
+    // ключ: старшие 32 бита - инвертированное количество лайков, младшие - id фильма
+    private final NavigableSet<Long> ranking = new ConcurrentSkipListSet<>();
+    private final Map<Integer, Integer> likeCounts = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public synchronized void reload() {
+        ranking.clear();
+        likeCounts.clear();
+        jdbcTemplate.query("SELECT id, like_count FROM films", rs -> {
+            put(rs.getInt("id"), rs.getInt("like_count"));
+        });
+        log.info("Загружен индекс популярности фильмов: {} фильмов", likeCounts.size());
+    }
+
+    public void put(int filmId, int likes) {
+        likeCounts.compute(filmId, (id, old) -> {
+            ranking.add(key(id, likes));
+            if (old != null && old != likes) {
+                ranking.remove(key(id, old));
+            }
+            return likes;
+        });
+    }
+
+    public void increment(int filmId) {
+        change(filmId, 1);
+    }
+
+    public void decrement(int filmId) {
+        change(filmId, -1);
+    }
+
+    public List<Integer> getTop(int count) {
+        List<Integer> top = new ArrayList<>(Math.min(count, likeCounts.size()));
+        Set<Integer> seen = new HashSet<>();
+        for (long key : ranking) {
+            if (top.size() >= count) {
+                break;
+            }
+            int filmId = (int) key;
+            // во время перестановки фильм может кратковременно присутствовать под двумя ключами
+            if (seen.add(filmId)) {
+                top.add(filmId);
+            }
+        }
+        return top;
+    }
+
+    private void change(int filmId, int delta) {
+        likeCounts.compute(filmId, (id, old) -> {
+            int likes = (old == null ? 0 : old) + delta;
+            ranking.add(key(id, likes));
+            if (old != null) {
+                ranking.remove(key(id, old));
+            }
+            return likes;
+        });
+    }
+
+    private static long key(int filmId, int likes) {
+        return ((long) (Integer.MAX_VALUE - likes) << 32) | (filmId & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,188 @@
+package ru.yandex.practicum.filmorate.index;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+@Slf4j
+public class SimilarFilmsIndex {
+    private static final int[] EMPTY = new int[0];
+    // примерные накладные расходы на запись в карте, ключ Integer и заголовок массива
+    private static final int ENTRY_OVERHEAD_BYTES = 80;
+    private static final int SEQUENTIAL_THRESHOLD = 64;
+    private final LikesMatrix likesMatrix;
+    private final int topK;
+    private final int refreshBatchSize;
+    private final ForkJoinPool pool;
+    private final Timer buildTimer;
+    // готовые списки похожих фильмов; полная перестройка подменяет карту целиком, чтение никогда не блокируется
+    private volatile Map<Integer, int[]> similar = new ConcurrentHashMap<>();
+    private final Set<Integer> changed = ConcurrentHashMap.newKeySet();
+    // время самого раннего необработанного изменения в наносекундах, 0 - изменений нет
+    private final AtomicLong oldestChange = new AtomicLong();
+    private volatile long refreshLagMillis;
+
+    public SimilarFilmsIndex(LikesMatrix likesMatrix, MeterRegistry registry,
+                             @Value("${filmorate.similar.top-k}") int topK,
+                             @Value("${filmorate.similar.refresh-batch-size}") int refreshBatchSize,
+                             @Value("${filmorate.recommendations.parallelism}") int parallelism) {
+        this.likesMatrix = likesMatrix;
+        this.topK = topK;
+        this.refreshBatchSize = refreshBatchSize;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.buildTimer = Timer.builder("filmorate.similar.build")
+                .description("Время полной перестройки индекса похожих фильмов")
+                .register(registry);
+        Gauge.builder("filmorate.similar.memory", this, SimilarFilmsIndex::estimateMemory)
+                .description("Примерный объем памяти индекса похожих фильмов")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("filmorate.similar.refresh.lag", this, index -> index.refreshLagMillis)
+                .description("Задержка между изменением лайков и обновлением индекса при последнем обновлении")
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("filmorate.similar.pending", changed, Set::size)
+                .description("Фильмы, ожидающие пересчета")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        // первая сборка идет в фоне, до ее окончания запросы получают пустые списки
+        pool.execute(this::rebuild);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public int[] getSimilar(int filmId, int count) {
+        int[] films = similar.getOrDefault(filmId, EMPTY);
+        return Arrays.copyOf(films, Math.min(count, films.length));
+    }
+
+    // пересчитывается только фильм с новым лайком; списки остальных фильмов, с которыми изменилась
+    // совместная встречаемость, догоняют при их собственном пересчете или плановой полной перестройке
+    public void markChanged(int filmId) {
+        oldestChange.accumulateAndGet(System.nanoTime(), SimilarFilmsIndex::earliest);
+        changed.add(filmId);
+    }
+
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        int[] filmIds = likesMatrix.getFilmIds();
+        Map<Integer, int[]> built = new ConcurrentHashMap<>();
+        pool.invoke(new BuildTask(filmIds, 0, filmIds.length, built));
+        similar = built;
+        long nanos = System.nanoTime() - start;
+        buildTimer.record(nanos, TimeUnit.NANOSECONDS);
+        log.info("Построен индекс похожих фильмов: {} фильмов за {} мс", built.size(), nanos / 1_000_000);
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.similar.rebuild-ms}",
+            initialDelayString = "${filmorate.similar.rebuild-ms}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.similar.refresh-ms}")
+    public synchronized void refresh() {
+        long since = oldestChange.getAndSet(0);
+        if (changed.isEmpty()) {
+            return;
+        }
+        int[] filmIds = new int[Math.min(changed.size(), refreshBatchSize)];
+        int count = 0;
+        Iterator<Integer> iterator = changed.iterator();
+        // за один проход пересчитывается не больше refreshBatchSize фильмов, остальные ждут следующего
+        while (iterator.hasNext() && count < filmIds.length) {
+            filmIds[count++] = iterator.next();
+            iterator.remove();
+        }
+        pool.invoke(new BuildTask(filmIds, 0, count, similar));
+        if (since != 0 && !changed.isEmpty()) {
+            // оставшиеся фильмы сохраняют время своего изменения, чтобы задержка не занижалась
+            oldestChange.accumulateAndGet(since, SimilarFilmsIndex::earliest);
+        } else if (since != 0) {
+            refreshLagMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since);
+        }
+        log.debug("Обновлен индекс похожих фильмов: пересчитано {} фильмов, ожидают {}", count, changed.size());
+    }
+
+    // более раннее из двух значений System.nanoTime(), 0 означает отсутствие изменений
+    private static long earliest(long current, long time) {
+        if (current == 0 || time == 0) {
+            return current == 0 ? time : current;
+        }
+        return current - time <= 0 ? current : time;
+    }
+
+    private int[] computeSimilar(int filmId) {
+        IntCounter together = new IntCounter();
+        likesMatrix.forEachUser(filmId, userId -> likesMatrix.forEachFilm(userId, otherId -> {
+            if (otherId != filmId) {
+                together.increment(otherId);
+            }
+        }));
+        TopK top = new TopK(topK);
+        together.addTo(top);
+        return top.toArray();
+    }
+
+    private double estimateMemory() {
+        long bytes = 0;
+        for (int[] films : similar.values()) {
+            bytes += ENTRY_OVERHEAD_BYTES + 4L * films.length;
+        }
+        return bytes;
+    }
+
+    private class BuildTask extends RecursiveAction {
+        private final int[] filmIds;
+        private final int from;
+        private final int to;
+        private final Map<Integer, int[]> target;
+
+        private BuildTask(int[] filmIds, int from, int to, Map<Integer, int[]> target) {
+            this.filmIds = filmIds;
+            this.from = from;
+            this.to = to;
+            this.target = target;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SEQUENTIAL_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BuildTask(filmIds, from, middle, target), new BuildTask(filmIds, middle, to, target));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                int[] films = computeSimilar(filmIds[i]);
+                if (films.length == 0) {
+                    target.remove(filmIds[i]);
+                } else {
+                    target.put(filmIds[i], films);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.index;
+
+import java.util.PriorityQueue;
+
+// выбирает limit id с наибольшим весом без сортировки всех кандидатов; при равном весе выше меньший id
+class TopK {
+    private final int limit;
+    // ключ: старшие 32 бита - вес, младшие - инвертированный id для порядка по возрастанию id
+    private final PriorityQueue<Long> heap;
+
+    TopK(int limit) {
+        this.limit = limit;
+        this.heap = new PriorityQueue<>(limit + 1);
+    }
+
+    void offer(int weight, int id) {
+        long key = ((long) weight << 32) | (Integer.MAX_VALUE - id);
+        if (heap.size() < limit) {
+            heap.add(key);
+        } else if (limit > 0 && key > heap.peek()) {
+            heap.poll();
+            heap.add(key);
+        }
+    }
+
+    void addAll(TopK other) {
+        for (long key : other.heap) {
+            offer((int) (key >>> 32), Integer.MAX_VALUE - (int) (key & 0xFFFFFFFFL));
+        }
+    }
+
+    int[] toArray() {
+        int[] result = new int[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = Integer.MAX_VALUE - (int) (heap.poll() & 0xFFFFFFFFL);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("filmorate.Cache")
+@Label("Обращение к кэшу")
+@Category("Filmorate")
+@StackTrace(false)
+public class CacheEvent extends Event {
+    @Label("Кэш")
+    private String cache;
+    @Label("Операция")
+    private String operation;
+    @Label("Запрошено ключей")
+    private int requested;
+    @Label("Попаданий")
+    private int hits;
+
+    // поля заполняются, только если событие попадет в запись
+    public void commit(String cache, String operation, int requested, int hits) {
+        if (shouldCommit()) {
+            this.cache = cache;
+            this.operation = operation;
+            this.requested = requested;
+            this.hits = hits;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+@Name("filmorate.Repository")
+@Label("Вызов хранилища")
+@Category("Filmorate")
+@Setter
+public class RepositoryEvent extends Event {
+    @Label("Класс")
+    private String repository;
+    @Label("Метод")
+    private String method;
+    @Label("SQL")
+    private String sql;
+    @Label("Строк")
+    private long rows;
+    @Label("Исключение")
+    private String exception;
+}
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.jfr;
+
+import java.util.StringJoiner;
+
+// SQL и число строк текущего вызова хранилища; собираются, только пока событие включено в запись JFR
+public final class RepositoryTrace {
+    private static final ThreadLocal<RepositoryTrace> CURRENT = new ThreadLocal<>();
+    private final RepositoryTrace outer;
+    private final RepositoryEvent event;
+    private final StringJoiner sql = new StringJoiner(";\n");
+    private long rows;
+
+    private RepositoryTrace(RepositoryTrace outer, RepositoryEvent event) {
+        this.outer = outer;
+        this.event = event;
+    }
+
+    // null, если запись не ведется
+    public static RepositoryTrace start() {
+        RepositoryEvent event = new RepositoryEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        RepositoryTrace trace = new RepositoryTrace(CURRENT.get(), event);
+        CURRENT.set(trace);
+        event.begin();
+        return trace;
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    // запросы и строки вложенного вызова засчитываются только ему
+    public static void statement(String sql) {
+        RepositoryTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.sql.add(sql);
+        }
+    }
+
+    public static void rows(long count) {
+        RepositoryTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.rows += count;
+        }
+    }
+
+    public void end(String repository, String method, Throwable error) {
+        if (outer != null) {
+            CURRENT.set(outer);
+        } else {
+            CURRENT.remove();
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.setRepository(repository);
+            event.setMethod(method);
+            event.setSql(sql.toString());
+            event.setRows(rows);
+            event.setException(error != null ? error.getClass().getSimpleName() : null);
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+
+@Name("filmorate.Request")
+@Label("HTTP-запрос")
+@Category("Filmorate")
+@StackTrace(false)
+@Setter
+public class RequestEvent extends Event {
+    @Label("Метод")
+    private String method;
+    @Label("Маршрут")
+    private String route;
+    @Label("Статус")
+    private int status;
+    @Label("SQL-запросов")
+    private int statements;
+}
@@ -0,0 +1,362 @@
+package ru.yandex.practicum.filmorate.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.LikesDao;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.index.SimilarFilmsIndex;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// журнал лайков: запись подтверждается после fsync, в таблицу likes записи переносятся пакетами в фоне
+@Component
+@Slf4j
+public class LikeJournal {
+    // film_id, user_id, действие и контрольная сумма первых девяти байт
+    static final int RECORD_SIZE = 13;
+    private final LikesDao likesDao;
+    private final PendingLikes pendingLikes;
+    private final PopularityIndex popularityIndex;
+    private final SimilarFilmsIndex similarFilmsIndex;
+    private final FilmStorage filmStorage;
+    private final boolean enabled;
+    private final Path path;
+    private final long commitIntervalMillis;
+    private final long applyIntervalMillis;
+    private final int applyBatchSize;
+    private final Object appendLock = new Object();
+    private final Object fileLock = new Object();
+    private ScheduledExecutorService executor;
+    private FileChannel channel;
+    // guarded by appendLock
+    private List<Record> buffer = new ArrayList<>();
+    private CompletableFuture<Void> group = new CompletableFuture<>();
+    private long nextSequence;
+    private boolean closed;
+    // guarded by fileLock: записи, сохраненные на диск, но еще не перенесенные в базу
+    private final Deque<Record> unapplied = new ArrayDeque<>();
+
+    public LikeJournal(LikesDao likesDao, PendingLikes pendingLikes, PopularityIndex popularityIndex,
+                       SimilarFilmsIndex similarFilmsIndex, @Qualifier("filmStorage") FilmStorage filmStorage,
+                       @Value("${filmorate.likes.journal.enabled}") boolean enabled,
+                       @Value("${filmorate.likes.journal.path}") String path,
+                       @Value("${filmorate.likes.journal.commit-interval-ms}") long commitIntervalMillis,
+                       @Value("${filmorate.likes.journal.apply-interval-ms}") long applyIntervalMillis,
+                       @Value("${filmorate.likes.journal.apply-batch-size}") int applyBatchSize) {
+        this.likesDao = likesDao;
+        this.pendingLikes = pendingLikes;
+        this.popularityIndex = popularityIndex;
+        this.similarFilmsIndex = similarFilmsIndex;
+        this.filmStorage = filmStorage;
+        this.enabled = enabled;
+        this.path = Paths.get(path);
+        this.commitIntervalMillis = commitIntervalMillis;
+        this.applyIntervalMillis = applyIntervalMillis;
+        this.applyBatchSize = applyBatchSize;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        replay();
+        executor = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "like-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::commit, commitIntervalMillis, commitIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::applySafely, applyIntervalMillis, applyIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        log.info("Журнал лайков включен: {}", path.toAbsolutePath());
+    }
+
+    // неперенесенные записи остаются в файле и будут применены при следующем запуске;
+    // записи, принятые до закрытия, сохраняются последним коммитом, новые отклоняются
+    @PreDestroy
+    public void shutdown() throws IOException {
+        if (executor == null) {
+            return;
+        }
+        synchronized (appendLock) {
+            closed = true;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        commit();
+        synchronized (appendLock) {
+            group.completeExceptionally(new ClosedChannelException());
+        }
+        channel.close();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // возвращает для каждой операции, изменила ли она состояние лайка с учетом еще не примененных записей;
+    // операции становятся видны через PendingLikes только после fsync их пакета
+    public boolean[] append(List<LikeOperation> operations) {
+        List<Record> records = new ArrayList<>(operations.size());
+        CompletableFuture<Void> committed;
+        synchronized (appendLock) {
+            if (closed) {
+                throw new UncheckedIOException("Журнал лайков закрыт.", new ClosedChannelException());
+            }
+            for (LikeOperation operation : operations) {
+                Record record = new Record(operation, nextSequence++);
+                records.add(record);
+                buffer.add(record);
+            }
+            committed = group;
+        }
+        try {
+            committed.join();
+        } catch (CompletionException ex) {
+            throw new UncheckedIOException("Не удалось записать журнал лайков.", (IOException) ex.getCause());
+        }
+        boolean[] changed = new boolean[records.size()];
+        for (int i = 0; i < changed.length; i++) {
+            changed[i] = records.get(i).changed;
+        }
+        return changed;
+    }
+
+    // переносит в базу все записи, подтвержденные к моменту вызова
+    public synchronized void applyPending() {
+        int applied;
+        do {
+            applied = applyBatch();
+        } while (applied > 0);
+    }
+
+    private void commit() {
+        // пакеты пишутся и попадают в PendingLikes строго в порядке последовательных номеров
+        synchronized (fileLock) {
+            List<Record> records;
+            CompletableFuture<Void> committed;
+            synchronized (appendLock) {
+                if (buffer.isEmpty()) {
+                    return;
+                }
+                records = buffer;
+                committed = group;
+                buffer = new ArrayList<>();
+                group = new CompletableFuture<>();
+            }
+            ByteBuffer bytes = ByteBuffer.allocate(records.size() * RECORD_SIZE);
+            for (Record record : records) {
+                encode(record.operation, bytes);
+            }
+            bytes.flip();
+            long start = -1;
+            try {
+                start = channel.position();
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            } catch (IOException ex) {
+                log.error("Не удалось записать журнал лайков", ex);
+                if (start >= 0) {
+                    discardTail(start);
+                }
+                committed.completeExceptionally(ex);
+                return;
+            }
+            for (Record record : records) {
+                record.changed = pendingLikes.record(record.operation, record.sequence);
+            }
+            unapplied.addAll(records);
+            committed.complete(null);
+        }
+    }
+
+    // неподтвержденный пакет не должен примениться при следующем запуске
+    private void discardTail(long start) {
+        try {
+            channel.truncate(start);
+            channel.position(start);
+        } catch (IOException ex) {
+            log.error("Не удалось отбросить неподтвержденный хвост журнала лайков", ex);
+        }
+    }
+
+    private void applySafely() {
+        try {
+            applyPending();
+        } catch (RuntimeException ex) {
+            log.error("Не удалось перенести журнал лайков в базу, записи будут применены повторно", ex);
+        }
+    }
+
+    private int applyBatch() {
+        List<Record> records = new ArrayList<>();
+        synchronized (fileLock) {
+            for (Record record : unapplied) {
+                if (records.size() == applyBatchSize) {
+                    break;
+                }
+                records.add(record);
+            }
+        }
+        if (records.isEmpty()) {
+            return 0;
+        }
+        // в пакете для каждой пары остается только последняя запись, она задает итоговое состояние
+        Map<Long, Record> last = new LinkedHashMap<>();
+        for (Record record : records) {
+            last.put(((long) record.operation.getFilmId() << 32) | record.operation.getUserId(), record);
+        }
+        List<Record> coalesced = new ArrayList<>(last.values());
+        List<LikeOperation> operations = new ArrayList<>(coalesced.size());
+        for (Record record : coalesced) {
+            operations.add(record.operation);
+        }
+        boolean[] applied = likesDao.applyBatch(operations);
+        for (int i = 0; i < coalesced.size(); i++) {
+            Record record = coalesced.get(i);
+            pendingLikes.applied(record.operation, record.sequence, applied[i]);
+            if (applied[i]) {
+                // рейтинг, прочитанный во время переноса, мог учесть лайк дважды
+                filmStorage.evict(record.operation.getFilmId());
+                similarFilmsIndex.markChanged(record.operation.getFilmId());
+            }
+        }
+        synchronized (fileLock) {
+            for (int i = 0; i < records.size(); i++) {
+                unapplied.removeFirst();
+            }
+            if (unapplied.isEmpty()) {
+                // все записи в базе: файл начинается заново
+                try {
+                    truncate();
+                } catch (IOException ex) {
+                    log.warn("Не удалось очистить журнал лайков, записи будут применены повторно", ex);
+                }
+            }
+        }
+        return records.size();
+    }
+
+    // журнал всегда читается с начала: повторное применение уже перенесенных записей не меняет результат,
+    // а пропуск подтвержденных записей потерял бы лайки
+    private void replay() throws IOException {
+        long size = channel.size();
+        long offset = 0;
+        List<LikeOperation> operations = new ArrayList<>();
+        ByteBuffer bytes = ByteBuffer.allocate(RECORD_SIZE);
+        while (offset + RECORD_SIZE <= size) {
+            bytes.clear();
+            while (bytes.hasRemaining()) {
+                channel.read(bytes, offset + bytes.position());
+            }
+            bytes.flip();
+            LikeOperation operation = decode(bytes);
+            if (operation == null) {
+                break;
+            }
+            operations.add(operation);
+            offset += RECORD_SIZE;
+        }
+        if (offset < size) {
+            log.warn("Журнал лайков поврежден после позиции {}, хвост длиной {} байт отброшен", offset, size - offset);
+        }
+        channel.truncate(offset);
+        channel.position(offset);
+        // восстановленные записи проходят тот же путь, что и новые: ожидание и перенос в базу
+        for (LikeOperation operation : operations) {
+            Record record = new Record(operation, nextSequence++);
+            pendingLikes.record(operation, record.sequence);
+            unapplied.add(record);
+        }
+        applyPending();
+        if (operations.isEmpty()) {
+            truncate();
+        } else {
+            popularityIndex.reload();
+            log.info("Из журнала лайков восстановлено записей: {}", operations.size());
+        }
+    }
+
+    // усечение синхронизируется с диском до следующей записи: иначе после сбоя за новыми записями
+    // могли бы остаться старые и при восстановлении применились бы после них
+    private void truncate() throws IOException {
+        channel.truncate(0);
+        channel.force(true);
+    }
+
+    static void encode(LikeOperation operation, ByteBuffer bytes) {
+        int start = bytes.position();
+        bytes.putInt(operation.getFilmId());
+        bytes.putInt(operation.getUserId());
+        bytes.put((byte) operation.getAction().ordinal());
+        bytes.putInt(checksum(bytes, start));
+    }
+
+    private static LikeOperation decode(ByteBuffer bytes) {
+        int filmId = bytes.getInt();
+        int userId = bytes.getInt();
+        byte action = bytes.get();
+        int checksum = bytes.getInt();
+        if (checksum != checksum(bytes, 0) || action < 0 || action >= LikeOperation.Action.values().length) {
+            return null;
+        }
+        return new LikeOperation(filmId, userId, LikeOperation.Action.values()[action]);
+    }
+
+    private static int checksum(ByteBuffer bytes, int start) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array(), bytes.arrayOffset() + start, RECORD_SIZE - Integer.BYTES);
+        return (int) crc.getValue();
+    }
+
+    private static class Record {
+        private final LikeOperation operation;
+        private final long sequence;
+        // заполняется после fsync пакета
+        private boolean changed;
+
+        private Record(LikeOperation operation, long sequence) {
+            this.operation = operation;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.journal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// лайки, подтвержденные журналом, но еще не перенесенные в таблицу likes
+@Component
+@RequiredArgsConstructor
+public class PendingLikes {
+    private final LikesMatrix likesMatrix;
+    // последнее непримененное действие по паре фильм-пользователь
+    private final Map<Long, Entry> pairs = new HashMap<>();
+    // на сколько изменится like_count фильма после применения всех записей
+    private final Map<Integer, Integer> deltas = new ConcurrentHashMap<>();
+
+    public synchronized boolean isLiked(int filmId, int userId) {
+        Entry entry = pairs.get(pair(filmId, userId));
+        return entry != null ? entry.liked : likesMatrix.contains(filmId, userId);
+    }
+
+    // между записью пакета в базу и вызовом applied лайк может быть учтен дважды, расхождение исчезает после переноса
+    public int adjust(int filmId, int likes) {
+        return likes + deltas.getOrDefault(filmId, 0);
+    }
+
+    public synchronized boolean isEmpty() {
+        return pairs.isEmpty();
+    }
+
+    synchronized boolean record(LikeOperation operation, long sequence) {
+        boolean liked = operation.getAction() == LikeOperation.Action.LIKE;
+        boolean changed = isLiked(operation.getFilmId(), operation.getUserId()) != liked;
+        pairs.put(pair(operation.getFilmId(), operation.getUserId()), new Entry(liked, sequence));
+        if (changed) {
+            addDelta(operation.getFilmId(), liked ? 1 : -1);
+        }
+        return changed;
+    }
+
+    synchronized void applied(LikeOperation operation, long sequence, boolean changed) {
+        long pair = pair(operation.getFilmId(), operation.getUserId());
+        Entry entry = pairs.get(pair);
+        // более поздняя запись по той же паре остается ожидающей
+        if (entry != null && entry.sequence <= sequence) {
+            pairs.remove(pair);
+        }
+        if (changed) {
+            addDelta(operation.getFilmId(), operation.getAction() == LikeOperation.Action.LIKE ? -1 : 1);
+        }
+    }
+
+    private void addDelta(int filmId, int delta) {
+        deltas.compute(filmId, (id, current) -> {
+            int updated = (current == null ? 0 : current) + delta;
+            return updated == 0 ? null : updated;
+        });
+    }
+
+    private static long pair(int filmId, int userId) {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    private static class Entry {
+        private final boolean liked;
+        private final long sequence;
+
+        private Entry(boolean liked, long sequence) {
+            this.liked = liked;
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.util.ClassUtils;
+import ru.yandex.practicum.filmorate.dao.FriendsDao;
+import ru.yandex.practicum.filmorate.dao.GenreDao;
+import ru.yandex.practicum.filmorate.dao.LikesDao;
+import ru.yandex.practicum.filmorate.dao.MpaDao;
+import ru.yandex.practicum.filmorate.jfr.RepositoryTrace;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.repository.UserStorage;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// таймер на каждый метод хранилищ и DAO: класс реализации, метод, исключение и маршрут запроса в тегах;
+// при включенной записи JFR вызов дополнительно пишется событием с текстом SQL и числом строк
+public class RepositoryMetricsPostProcessor extends AbstractAdvisingBeanPostProcessor {
+    private static final List<Class<?>> REPOSITORIES = List.of(FilmStorage.class, UserStorage.class,
+            LikesDao.class, FriendsDao.class, GenreDao.class, MpaDao.class);
+
+    public RepositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return REPOSITORIES.stream().anyMatch(repository -> repository.isAssignableFrom(targetClass)
+                        && ClassUtils.hasMethod(repository, method.getName(), method.getParameterTypes()));
+            }
+        };
+        pointcut.setClassFilter(type -> REPOSITORIES.stream().anyMatch(repository ->
+                repository.isAssignableFrom(type)));
+        this.advisor = new DefaultPointcutAdvisor(pointcut, new TimingInterceptor(registry));
+        // тесты и бенчмарки получают хранилища по классу реализации
+        setProxyTargetClass(true);
+    }
+
+    // хранилище без кэша отдается под вторым именем тем же объектом, второй таймер ему не нужен
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof Advised && Arrays.asList(((Advised) bean).getAdvisors()).contains(advisor)) {
+            return bean;
+        }
+        return super.postProcessAfterInitialization(bean, beanName);
+    }
+
+    private static class TimingInterceptor implements MethodInterceptor {
+        private final ObjectProvider<MeterRegistry> registry;
+
+        private TimingInterceptor(ObjectProvider<MeterRegistry> registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long start = System.nanoTime();
+            RepositoryTrace trace = RepositoryTrace.start();
+            String repository = ClassUtils.getUserClass(invocation.getThis().getClass()).getSimpleName();
+            Throwable error = null;
+            try {
+                return invocation.proceed();
+            } catch (Throwable ex) {
+                error = ex;
+                throw ex;
+            } finally {
+                if (trace != null) {
+                    trace.end(repository, invocation.getMethod().getName(), error);
+                }
+                Timer.builder("filmorate.repository")
+                        .description("Время вызовов методов хранилищ и DAO")
+                        .tags("class", repository,
+                                "method", invocation.getMethod().getName(),
+                                "exception", error != null ? error.getClass().getSimpleName() : "none",
+                                "uri", RequestMetrics.currentUri())
+                        .register(registry.getObject())
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.yandex.practicum.filmorate.jfr.RequestEvent;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+// число SQL-запросов на каждый HTTP-запрос с шаблоном маршрута в тегах, при записи JFR - событие на запрос;
+// счетчик хранится в потоке обработки запроса, поэтому запросы из асинхронной части ответа
+// (StreamingResponseBody выгрузки /films/export) в метрику маршрута не попадают
+@Component
+public class RequestMetrics extends OncePerRequestFilter implements HandlerInterceptor {
+    static final String NO_REQUEST = "none";
+    private static final ThreadLocal<State> CURRENT = new ThreadLocal<>();
+    private final MeterRegistry registry;
+
+    public RequestMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    // шаблон маршрута текущего запроса; вызовы из фоновых потоков получают none
+    static String currentUri() {
+        State state = CURRENT.get();
+        return state != null ? state.uri : NO_REQUEST;
+    }
+
+    static void countStatement() {
+        State state = CURRENT.get();
+        if (state != null) {
+            state.statements++;
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        State state = new State();
+        RequestEvent event = new RequestEvent();
+        CURRENT.set(state);
+        event.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            CURRENT.remove();
+            String uri = uri(request, response);
+            event.end();
+            if (event.shouldCommit()) {
+                event.setMethod(request.getMethod());
+                event.setRoute(uri);
+                event.setStatus(response.getStatus());
+                event.setStatements(state.statements);
+                event.commit();
+            }
+            DistributionSummary.builder("filmorate.http.sql.statements")
+                    .description("Число SQL-запросов, выполненных при обработке HTTP-запроса")
+                    .tags("method", request.getMethod(), "uri", uri)
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(1000.0)
+                    .register(registry)
+                    .record(state.statements);
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        State state = CURRENT.get();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (state != null && pattern != null) {
+            state.uri = pattern.toString();
+        }
+        return true;
+    }
+
+    private static String uri(HttpServletRequest request, HttpServletResponse response) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern != null) {
+            return pattern.toString();
+        }
+        return response.getStatus() == HttpStatus.NOT_FOUND.value() ? "NOT_FOUND" : "UNKNOWN";
+    }
+
+    private static class State {
+        private String uri = "UNKNOWN";
+        private int statements;
+    }
+}
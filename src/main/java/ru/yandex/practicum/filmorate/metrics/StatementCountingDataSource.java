@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import ru.yandex.practicum.filmorate.jfr.RepositoryTrace;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// каждый вызов execute* у выданных statement засчитывается текущему HTTP-запросу;
+// текст SQL и число строк собираются, только пока вызов хранилища пишется в JFR;
+// единственный перехватчик JDBC в приложении, тесты подключаются к нему через Listener
+public class StatementCountingDataSource extends DelegatingDataSource {
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    StatementCountingDataSource(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, super.getConnection(), null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, super.getConnection(username, password), null);
+    }
+
+    // sql - текст подготовленного запроса, для обычного statement он приходит в аргументе execute*
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(Class<T> type, Object target, String sql) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            boolean execute = method.getName().startsWith("execute");
+            boolean traced = execute && RepositoryTrace.isActive();
+            String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            if (execute) {
+                RequestMetrics.countStatement();
+                for (Listener listener : listeners) {
+                    listener.executing(method.getName(), text);
+                }
+            }
+            if (traced) {
+                RepositoryTrace.statement(text);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            }
+            if (result instanceof CallableStatement) {
+                return proxy(CallableStatement.class, result, text);
+            } else if (result instanceof PreparedStatement) {
+                return proxy(PreparedStatement.class, result, text);
+            } else if (result instanceof Statement) {
+                return proxy(Statement.class, result, null);
+            } else if (traced && result instanceof ResultSet) {
+                return countingRows((ResultSet) result);
+            } else if (traced) {
+                RepositoryTrace.rows(updatedRows(result));
+            }
+            return result;
+        });
+    }
+
+    private static ResultSet countingRows(ResultSet resultSet) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(resultSet, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getTargetException();
+                    }
+                    if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                        RepositoryTrace.rows(1);
+                    }
+                    return result;
+                });
+    }
+
+    // executeBatch возвращает число строк по каждой команде, отрицательные значения - без информации
+    private static long updatedRows(Object result) {
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        } else if (result instanceof int[]) {
+            long rows = 0;
+            for (int count : (int[]) result) {
+                rows += Math.max(count, 0);
+            }
+            return rows;
+        }
+        return 0;
+    }
+
+    // вызывается перед каждым execute* в потоке, выполняющем запрос
+    public interface Listener {
+        void executing(String method, String sql) throws InterruptedException;
+    }
+}
@@ -1,8 +1,9 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
-import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import ru.yandex.practicum.filmorate.annotation.MinDate;
 
@@ -15,7 +16,6 @@ import java.util.TreeSet;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class Film {
     private int id;
     @NotBlank
@@ -30,6 +30,22 @@ public class Film {
     @JsonDeserialize(as = TreeSet.class)
     private Set<Genre> genres = new TreeSet<>();
     private Mpa mpa;
+    // растет при каждом изменении полей фильма, клиентам не отдается
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private int version;
+
+    public Film(int id, String name, String description, LocalDate releaseDate, int duration, int rate,
+                Set<Genre> genres, Mpa mpa) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.releaseDate = releaseDate;
+        this.duration = duration;
+        this.rate = rate;
+        this.genres = genres;
+        this.mpa = mpa;
+    }
 
     public Film(String name, String description, LocalDate releaseDate, int duration, Set<Genre> genres, Mpa mpa) {
         this.name = name;
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeOperation {
+    @Positive
+    private int filmId;
+    @Positive
+    private int userId;
+    @NotNull
+    private Action action;
+
+    public enum Action {
+        LIKE,
+        UNLIKE
+    }
+}
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+@Data
+public class LikeResult {
+    private final int filmId;
+    private final int userId;
+    private final LikeOperation.Action action;
+    private final Status status;
+
+    public static LikeResult of(LikeOperation operation, Status status) {
+        return new LikeResult(operation.getFilmId(), operation.getUserId(), operation.getAction(), status);
+    }
+
+    public enum Status {
+        APPLIED,
+        // лайк уже был поставлен или уже отсутствовал
+        UNCHANGED,
+        // операцию отменила более поздняя операция с той же парой фильм-пользователь
+        CANCELLED,
+        FILM_NOT_FOUND,
+        USER_NOT_FOUND
+    }
+}
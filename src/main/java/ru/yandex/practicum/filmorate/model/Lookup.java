@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+@Data
+public class Lookup<T> {
+    public static final String MISSING_IDS_HEADER = "X-Missing-Ids";
+    private final List<T> items;
+    private final List<Integer> missingIds;
+
+    public static <T> Lookup<T> of(Collection<Integer> ids, List<T> items, ToIntFunction<T> idGetter) {
+        Set<Integer> found = new HashSet<>();
+        for (T item : items) {
+            found.add(idGetter.applyAsInt(item));
+        }
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            if (!found.contains(id)) {
+                missingIds.add(id);
+            }
+        }
+        return new Lookup<>(items, missingIds);
+    }
+}
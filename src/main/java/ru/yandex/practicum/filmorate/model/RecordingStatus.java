@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class RecordingStatus {
+    private final boolean running;
+    private final String settings;
+    private final Instant startTime;
+    private final String file;
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+class BatchInsert {
+    private BatchInsert() {
+    }
+
+    static <T> List<Integer> executeAndReturnKeys(JdbcTemplate jdbcTemplate, String sql, List<T> items,
+                                                  ParameterizedPreparedStatementSetter<T> setter) {
+        // JdbcTemplate.batchUpdate не возвращает сгенерированные ключи, поэтому пакет выполняется напрямую
+        return jdbcTemplate.execute((ConnectionCallback<List<Integer>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql, new String[]{"id"})) {
+                for (T item : items) {
+                    setter.setValues(ps, item);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                List<Integer> ids = new ArrayList<>(items.size());
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(keys.getInt(1));
+                    }
+                }
+                return ids;
+            }
+        });
+    }
+}
@@ -1,87 +1,255 @@
 package ru.yandex.practicum.filmorate.repository;
 
-import lombok.RequiredArgsConstructor;
-import org.springframework.dao.EmptyResultDataAccessException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.dao.GenreDao;
-import ru.yandex.practicum.filmorate.dao.LikesDao;
-import ru.yandex.practicum.filmorate.dao.MpaDao;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.index.IdBitmap;
+import ru.yandex.practicum.filmorate.journal.PendingLikes;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.util.Mapper;
 
+import javax.annotation.PostConstruct;
+import java.sql.Date;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Component("FilmDbStorage")
-@RequiredArgsConstructor
+@Slf4j
 public class FilmDbStorage implements FilmStorage {
+    private static final int CHUNK_SIZE = 1000;
+    private static final String INSERT_FILM = "INSERT INTO films (name, description, release_date, duration, " +
+            "mpa_id, like_count) VALUES (?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_FILM_GENRE = "INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)";
+    private static final String MERGE_FILM_GENRE = "MERGE INTO film_genre (film_id, genre_id) KEY (film_id, genre_id) " +
+            "VALUES (?, ?)";
     private final JdbcTemplate jdbcTemplate;
-    private final GenreDao genreDao;
-    private final LikesDao likesDao;
-    private final MpaDao mpaDao;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ReferenceDataCache referenceData;
+    private final FilmLoader filmLoader;
+    private final PendingLikes pendingLikes;
+    private final TransactionTemplate transactionTemplate;
+    private final SimpleJdbcInsert filmInsert;
+    private final IdBitmap filmIds;
+    private final int batchChunkSize;
+
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                         ReferenceDataCache referenceData, FilmLoader filmLoader, PendingLikes pendingLikes,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${filmorate.batch.chunk-size}") int batchChunkSize,
+                         @Value("${filmorate.exists.id-bitmap}") boolean idBitmapEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.referenceData = referenceData;
+        this.filmLoader = filmLoader;
+        this.pendingLikes = pendingLikes;
+        this.transactionTemplate = transactionTemplate;
+        this.batchChunkSize = batchChunkSize;
+        filmIds = new IdBitmap(idBitmapEnabled);
+        filmInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("films")
+                .usingGeneratedKeyColumns("id");
+    }
+
+    @PostConstruct
+    public void loadIds() {
+        if (!filmIds.isEnabled()) {
+            return;
+        }
+        filmIds.clear();
+        jdbcTemplate.query("SELECT id FROM films", rs -> {
+            filmIds.add(rs.getInt("id"));
+        });
+        log.info("Загружены идентификаторы фильмов: {}", filmIds.size());
+    }
 
     @Override
     public List<Film> getAll() {
-        String sql = "SELECT * FROM films";
-        return jdbcTemplate.query(sql, (rs, rowNum) -> Mapper.makeFilm(rs, rowNum, likesDao, genreDao, mpaDao));
+        return filmLoader.getAll();
+    }
+
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        String sql = FilmLoader.SELECT_FILMS + "WHERE f.id > :afterId ORDER BY f.id LIMIT :limit";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("afterId", afterId)
+                .addValue("limit", limit);
+        return filmLoader.query(sql, params);
+    }
+
+    @Override
+    public void forEach(Consumer<Film> action) {
+        filmLoader.forEach(action);
     }
 
     @Override
     public Film getById(int id) {
-        String sql = "SELECT * FROM films WHERE id = ?";
-        try {
-            return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> Mapper.makeFilm(rs, rowNum, likesDao, genreDao, mpaDao), id);
-        } catch (EmptyResultDataAccessException ex) {
+        String sql = FilmLoader.SELECT_FILMS + "WHERE f.id = :id";
+        List<Film> films = filmLoader.query(sql, new MapSqlParameterSource("id", id));
+        if (films.isEmpty()) {
             throw new FilmNotFoundException(String.format("Фильм с id=%d не найден.", id));
         }
+        return films.get(0);
+    }
+
+    @Override
+    public boolean exists(int id) {
+        if (filmIds.contains(id)) {
+            return true;
+        }
+        String sql = "SELECT EXISTS (SELECT 1 FROM films WHERE id = ?)";
+        boolean exists = Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, id));
+        if (exists) {
+            filmIds.add(id);
+        }
+        return exists;
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        List<Integer> unknown = new ArrayList<>();
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            if (filmIds.contains(id)) {
+                existing.add(id);
+            } else {
+                unknown.add(id);
+            }
+        }
+        String sql = "SELECT id FROM films WHERE id IN (:ids)";
+        for (int from = 0; from < unknown.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = unknown.subList(from, Math.min(from + CHUNK_SIZE, unknown.size()));
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", chunk);
+            for (Integer id : namedJdbcTemplate.queryForList(sql, params, Integer.class)) {
+                existing.add(id);
+                filmIds.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public List<Film> getByIds(Collection<Integer> ids) {
+        return filmLoader.getByIds(ids);
     }
 
     @Override
     public Film save(Film film) {
+        TreeSet<Genre> genres = resolveGenres(film);
+        Mpa mpa = referenceData.getMpa(film.getMpa().getId());
         if (film.getId() == 0) {
-            SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                    .withTableName("films")
-                    .usingGeneratedKeyColumns("id");
-            int id = simpleJdbcInsert.executeAndReturnKey(Mapper.filmToMap(film)).intValue();
+            int id = filmInsert.executeAndReturnKey(Mapper.filmToMap(film)).intValue();
             film.setId(id);
-            String sqlAddFilm = "INSERT INTO film_genre (film_id, genre_id) VALUES (" + film.getId() + ", ?)";
-            for (Genre genre : film.getGenres()) {
-                jdbcTemplate.update(sqlAddFilm, genre.getId());
-            }
+            insertGenres(List.of(film));
+            filmIds.add(id);
         } else {
-            String sqlUpdateFilm = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, " +
-                    "mpa_id = ? WHERE id = ?";
-            jdbcTemplate.update(sqlUpdateFilm, film.getName(), film.getDescription(), film.getReleaseDate(),
-                    film.getDuration(), film.getMpa().getId(), film.getId());
-            List<Integer> genres = film.getGenres().stream()
-                    .map(Genre::getId)
-                    .collect(Collectors.toList());
-            List<Integer> genresFromDb = genreDao.getAllByFilmId(film.getId()).stream()
-                    .map(Genre::getId)
+            film.setRate(pendingLikes.adjust(film.getId(), transactionTemplate.execute(status -> update(film))));
+        }
+        film.setGenres(genres);
+        film.setMpa(mpa);
+
+        return film;
+    }
+
+    private int update(Film film) {
+        String sqlUpdateFilm = "SELECT like_count, version FROM FINAL TABLE (UPDATE films SET name = ?, " +
+                "description = ?, release_date = ?, duration = ?, mpa_id = ?, version = version + 1 WHERE id = ?)";
+        List<int[]> updated = jdbcTemplate.query(sqlUpdateFilm,
+                (rs, rowNum) -> new int[]{rs.getInt("like_count"), rs.getInt("version")}, film.getName(),
+                film.getDescription(), film.getReleaseDate(), film.getDuration(), film.getMpa().getId(), film.getId());
+        if (updated.isEmpty()) {
+            throw new FilmNotFoundException(String.format("Фильм с id=%d не найден.", film.getId()));
+        }
+        film.setVersion(updated.get(0)[1]);
+        List<Integer> genreIds = film.getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toList());
+        MapSqlParameterSource params = new MapSqlParameterSource("id", film.getId());
+        if (genreIds.isEmpty()) {
+            namedJdbcTemplate.update("DELETE FROM film_genre WHERE film_id = :id", params);
+        } else {
+            String sqlDeleteGenres = "DELETE FROM film_genre WHERE film_id = :id AND genre_id NOT IN (:genreIds)";
+            namedJdbcTemplate.update(sqlDeleteGenres, params.addValue("genreIds", genreIds));
+            List<Object[]> rows = genreIds.stream()
+                    .map(genreId -> new Object[]{film.getId(), genreId})
                     .collect(Collectors.toList());
-            String sqlAddGenre = "INSERT INTO film_genre (film_id, genre_id) VALUES (" + film.getId() + ", ?)";
-            String sqlDeleteGenre = "DELETE FROM film_genre WHERE film_id = " + film.getId() + " AND genre_id = ?";
-            for (Integer genreId : genres) {
-                if (genresFromDb.contains(genreId)) {
-                    genresFromDb.remove(genreId);
-                } else {
-                    jdbcTemplate.update(sqlAddGenre, genreId);
-                }
+            jdbcTemplate.batchUpdate(MERGE_FILM_GENRE, rows);
+        }
+        return updated.get(0)[0];
+    }
+
+    @Override
+    public List<Integer> saveAll(List<Film> films) {
+        for (Film film : films) {
+            resolveGenres(film);
+            if (film.getMpa() != null) {
+                referenceData.getMpa(film.getMpa().getId());
             }
-            if (!genresFromDb.isEmpty()) {
-                for (Integer genreId : genresFromDb) {
-                    jdbcTemplate.update(sqlDeleteGenre, genreId);
-                }
+        }
+        // весь импорт в одной транзакции: при ошибке в любом пакете не остаётся частично сохранённых записей
+        List<Integer> ids = transactionTemplate.execute(status -> {
+            List<Integer> inserted = new ArrayList<>(films.size());
+            for (int from = 0; from < films.size(); from += batchChunkSize) {
+                inserted.addAll(insertChunk(films.subList(from, Math.min(from + batchChunkSize, films.size()))));
+            }
+            return inserted;
+        });
+        ids.forEach(filmIds::add);
+        return ids;
+    }
+
+    private List<Integer> insertChunk(List<Film> films) {
+        List<Integer> ids = BatchInsert.executeAndReturnKeys(jdbcTemplate, INSERT_FILM, films, (ps, film) -> {
+            ps.setString(1, film.getName());
+            ps.setString(2, film.getDescription());
+            ps.setDate(3, film.getReleaseDate() == null ? null : Date.valueOf(film.getReleaseDate()));
+            ps.setInt(4, film.getDuration());
+            if (film.getMpa() == null) {
+                ps.setNull(5, Types.INTEGER);
+            } else {
+                ps.setInt(5, film.getMpa().getId());
             }
-            film.setRate(likesDao.getAllByFilmId(film.getId()).size());
+        });
+        for (int i = 0; i < films.size(); i++) {
+            films.get(i).setId(ids.get(i));
         }
-        film.setGenres(genreDao.getAllByFilmId(film.getId()));
-        film.setMpa(mpaDao.getById(film.getMpa().getId()));
+        insertGenres(films);
+        return ids;
+    }
 
-        return film;
+    private void insertGenres(List<Film> films) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Film film : films) {
+            for (Genre genre : film.getGenres()) {
+                rows.add(new Object[]{film.getId(), genre.getId()});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_FILM_GENRE, rows);
+        }
+    }
+
+    private TreeSet<Genre> resolveGenres(Film film) {
+        TreeSet<Genre> genres = new TreeSet<>();
+        for (Genre genre : film.getGenres()) {
+            genres.add(referenceData.getGenre(genre.getId()));
+        }
+        return genres;
     }
-}
\ No newline at end of file
+}
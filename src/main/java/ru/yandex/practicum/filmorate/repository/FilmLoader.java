@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.journal.PendingLikes;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.Mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Component
+@RequiredArgsConstructor
+public class FilmLoader {
+    public static final String SELECT_FILMS = "SELECT f.* FROM films AS f ";
+    public static final int CHUNK_SIZE = 1000;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceData;
+    private final PendingLikes pendingLikes;
+
+    public List<Film> getAll() {
+        List<Film> films = jdbcTemplate.query(SELECT_FILMS + "ORDER BY f.id", this::makeFilm);
+        Map<Integer, Film> filmsById = toMap(films);
+        String sqlGenres = "SELECT film_id, genre_id FROM film_genre";
+        jdbcTemplate.query(sqlGenres, genreAdder(filmsById));
+
+        return films;
+    }
+
+    public void forEach(Consumer<Film> action) {
+        String sql = SELECT_FILMS + "WHERE f.id > :afterId ORDER BY f.id LIMIT :limit";
+        int afterId = 0;
+        List<Film> films;
+        do {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("afterId", afterId)
+                    .addValue("limit", CHUNK_SIZE);
+            films = query(sql, params);
+            for (Film film : films) {
+                action.accept(film);
+                afterId = film.getId();
+            }
+        } while (films.size() == CHUNK_SIZE);
+    }
+
+    public List<Film> query(String sql, SqlParameterSource params) {
+        List<Film> films = jdbcTemplate.query(sql, params, this::makeFilm);
+        hydrate(films);
+
+        return films;
+    }
+
+    public List<Film> getByIds(Collection<Integer> ids) {
+        List<Integer> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        String sql = SELECT_FILMS + "WHERE f.id IN (:ids)";
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (int from = 0; from < distinctIds.size(); from += CHUNK_SIZE) {
+            Collection<Integer> chunk = distinctIds.subList(from, Math.min(from + CHUNK_SIZE, distinctIds.size()));
+            jdbcTemplate.query(sql, new MapSqlParameterSource("ids", chunk), rs -> {
+                Film film = makeFilm(rs, rs.getRow());
+                filmsById.put(film.getId(), film);
+            });
+        }
+        List<Film> films = new ArrayList<>(filmsById.size());
+        for (Integer id : distinctIds) {
+            Film film = filmsById.get(id);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        hydrate(films);
+
+        return films;
+    }
+
+    private void hydrate(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        Map<Integer, Film> filmsById = toMap(films);
+        List<Integer> ids = new ArrayList<>(filmsById.keySet());
+        String sqlGenres = "SELECT film_id, genre_id FROM film_genre WHERE film_id IN (:ids)";
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            Collection<Integer> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", chunk);
+            jdbcTemplate.query(sqlGenres, params, genreAdder(filmsById));
+        }
+    }
+
+    private static Map<Integer, Film> toMap(List<Film> films) {
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (Film film : films) {
+            filmsById.put(film.getId(), film);
+        }
+        return filmsById;
+    }
+
+    private Film makeFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = Mapper.makeFilm(rs, rowNum, referenceData);
+        // лайки из журнала, еще не перенесенные в таблицу, учитываются сразу
+        film.setRate(pendingLikes.adjust(film.getId(), film.getRate()));
+        return film;
+    }
+
+    private RowCallbackHandler genreAdder(Map<Integer, Film> filmsById) {
+        return rs -> {
+            Film film = filmsById.get(rs.getInt("film_id"));
+            if (film != null) {
+                film.getGenres().add(referenceData.getGenre(rs.getInt("genre_id")));
+            }
+        };
+    }
+}
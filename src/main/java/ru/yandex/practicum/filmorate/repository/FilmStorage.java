@@ -2,12 +2,31 @@ package ru.yandex.practicum.filmorate.repository;
 
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     List<Film> getAll();
 
+    List<Film> getPage(int afterId, int limit);
+
+    void forEach(Consumer<Film> action);
+
     Film getById(int id);
 
+    boolean exists(int id);
+
+    Set<Integer> getExistingIds(Collection<Integer> ids);
+
+    List<Film> getByIds(Collection<Integer> ids);
+
     Film save(Film film);
+
+    List<Integer> saveAll(List<Film> films);
+
+    // сбрасывает закэшированную копию после изменений в обход хранилища, например лайков
+    default void evict(int id) {
+    }
 }
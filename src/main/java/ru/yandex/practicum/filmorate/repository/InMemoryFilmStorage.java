@@ -5,9 +5,14 @@ import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Component
 public class InMemoryFilmStorage implements FilmStorage {
@@ -18,6 +23,20 @@ public class InMemoryFilmStorage implements FilmStorage {
         return new ArrayList<>(films.values());
     }
 
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        return films.values().stream()
+                .filter(film -> film.getId() > afterId)
+                .sorted(Comparator.comparingInt(Film::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void forEach(Consumer<Film> action) {
+        films.values().forEach(action);
+    }
+
     @Override
     public Film getById(int id) {
         if (films.get(id) == null) {
@@ -26,9 +45,42 @@ public class InMemoryFilmStorage implements FilmStorage {
         return films.get(id);
     }
 
+    @Override
+    public boolean exists(int id) {
+        return films.containsKey(id);
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        return ids.stream()
+                .filter(films::containsKey)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public List<Film> getByIds(Collection<Integer> ids) {
+        List<Film> result = new ArrayList<>();
+        for (Integer id : ids) {
+            Film film = films.get(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
     @Override
     public Film save(Film film) {
         films.put(film.getId(), film);
         return film;
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<Integer> saveAll(List<Film> films) {
+        List<Integer> ids = new ArrayList<>(films.size());
+        for (Film film : films) {
+            ids.add(save(film).getId());
+        }
+        return ids;
+    }
+}
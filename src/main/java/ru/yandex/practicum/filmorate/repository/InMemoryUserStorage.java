@@ -5,9 +5,13 @@ import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Component
 public class InMemoryUserStorage implements UserStorage {
@@ -18,6 +22,15 @@ public class InMemoryUserStorage implements UserStorage {
         return new ArrayList<>(users.values());
     }
 
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        return users.values().stream()
+                .filter(user -> user.getId() > afterId)
+                .sorted(Comparator.comparingInt(User::getId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public User getById(int id) {
         if (users.get(id) == null) {
@@ -26,9 +39,42 @@ public class InMemoryUserStorage implements UserStorage {
         return users.get(id);
     }
 
+    @Override
+    public boolean exists(int id) {
+        return users.containsKey(id);
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        return ids.stream()
+                .filter(users::containsKey)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public List<User> getByIds(Collection<Integer> ids) {
+        List<User> result = new ArrayList<>();
+        for (Integer id : ids) {
+            User user = users.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
     @Override
     public User save(User user) {
         users.put(user.getId(), user);
         return user;
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<Integer> saveAll(List<User> users) {
+        List<Integer> ids = new ArrayList<>(users.size());
+        for (User user : users) {
+            ids.add(save(user).getId());
+        }
+        return ids;
+    }
+}
@@ -1,20 +1,67 @@
 package ru.yandex.practicum.filmorate.repository;
 
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.index.IdBitmap;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.util.Mapper;
 
+import javax.annotation.PostConstruct;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Component("UserDbStorage")
-@RequiredArgsConstructor
+@Slf4j
 public class UserDbStorage implements UserStorage {
+    private static final int CHUNK_SIZE = 1000;
+    private static final String INSERT_USER = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SimpleJdbcInsert userInsert;
+    private final IdBitmap userIds;
+    private final int batchChunkSize;
+
+    public UserDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${filmorate.batch.chunk-size}") int batchChunkSize,
+                         @Value("${filmorate.exists.id-bitmap}") boolean idBitmapEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchChunkSize = batchChunkSize;
+        userIds = new IdBitmap(idBitmapEnabled);
+        userInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("users")
+                .usingGeneratedKeyColumns("id");
+    }
+
+    @PostConstruct
+    public void loadIds() {
+        if (!userIds.isEnabled()) {
+            return;
+        }
+        userIds.clear();
+        jdbcTemplate.query("SELECT id FROM users", rs -> {
+            userIds.add(rs.getInt("id"));
+        });
+        log.info("Загружены идентификаторы пользователей: {}", userIds.size());
+    }
 
     @Override
     public List<User> getAll() {
@@ -22,6 +69,12 @@ public class UserDbStorage implements UserStorage {
         return jdbcTemplate.query(sql, Mapper::makeUser);
     }
 
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        String sql = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sql, Mapper::makeUser, afterId, limit);
+    }
+
     @Override
     public User getById(int id) {
         String sql = "SELECT * FROM users WHERE id = ?";
@@ -32,14 +85,69 @@ public class UserDbStorage implements UserStorage {
         }
     }
 
+    @Override
+    public boolean exists(int id) {
+        if (userIds.contains(id)) {
+            return true;
+        }
+        String sql = "SELECT EXISTS (SELECT 1 FROM users WHERE id = ?)";
+        boolean exists = Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, id));
+        if (exists) {
+            userIds.add(id);
+        }
+        return exists;
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        List<Integer> unknown = new ArrayList<>();
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            if (userIds.contains(id)) {
+                existing.add(id);
+            } else {
+                unknown.add(id);
+            }
+        }
+        String sql = "SELECT id FROM users WHERE id IN (:ids)";
+        for (int from = 0; from < unknown.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = unknown.subList(from, Math.min(from + CHUNK_SIZE, unknown.size()));
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", chunk);
+            for (Integer id : namedJdbcTemplate.queryForList(sql, params, Integer.class)) {
+                existing.add(id);
+                userIds.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public List<User> getByIds(Collection<Integer> ids) {
+        List<Integer> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        String sql = "SELECT * FROM users WHERE id IN (:ids)";
+        Map<Integer, User> usersById = new HashMap<>();
+        for (int from = 0; from < distinctIds.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = distinctIds.subList(from, Math.min(from + CHUNK_SIZE, distinctIds.size()));
+            for (User user : namedJdbcTemplate.query(sql, new MapSqlParameterSource("ids", chunk), Mapper::makeUser)) {
+                usersById.put(user.getId(), user);
+            }
+        }
+        List<User> users = new ArrayList<>(usersById.size());
+        for (Integer id : distinctIds) {
+            User user = usersById.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
     @Override
     public User save(User user) {
         if (user.getId() == 0) {
-            SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                    .withTableName("users")
-                    .usingGeneratedKeyColumns("id");
-            int id = simpleJdbcInsert.executeAndReturnKey(Mapper.userToMap(user)).intValue();
+            int id = userInsert.executeAndReturnKey(Mapper.userToMap(user)).intValue();
             user.setId(id);
+            userIds.add(id);
         } else {
             String sql = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?";
             jdbcTemplate.update(sql, user.getEmail(), user.getLogin(), user.getName(), user.getBirthday(), user.getId());
@@ -47,4 +155,31 @@ public class UserDbStorage implements UserStorage {
 
         return user;
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<Integer> saveAll(List<User> users) {
+        // весь импорт в одной транзакции: при ошибке в любом пакете не остаётся частично сохранённых записей
+        List<Integer> ids = transactionTemplate.execute(status -> {
+            List<Integer> inserted = new ArrayList<>(users.size());
+            for (int from = 0; from < users.size(); from += batchChunkSize) {
+                inserted.addAll(insertChunk(users.subList(from, Math.min(from + batchChunkSize, users.size()))));
+            }
+            return inserted;
+        });
+        ids.forEach(userIds::add);
+        return ids;
+    }
+
+    private List<Integer> insertChunk(List<User> users) {
+        List<Integer> ids = BatchInsert.executeAndReturnKeys(jdbcTemplate, INSERT_USER, users, (ps, user) -> {
+            ps.setString(1, user.getEmail());
+            ps.setString(2, user.getLogin());
+            ps.setString(3, user.getName());
+            ps.setDate(4, user.getBirthday() == null ? null : Date.valueOf(user.getBirthday()));
+        });
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(ids.get(i));
+        }
+        return ids;
+    }
+}
@@ -2,12 +2,28 @@ package ru.yandex.practicum.filmorate.repository;
 
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public interface UserStorage {
     List<User> getAll();
 
+    List<User> getPage(int afterId, int limit);
+
     User getById(int id);
 
+    boolean exists(int id);
+
+    Set<Integer> getExistingIds(Collection<Integer> ids);
+
+    List<User> getByIds(Collection<Integer> ids);
+
     User save(User user);
+
+    List<Integer> saveAll(List<User> users);
+
+    // сбрасывает закэшированную копию после изменений в обход хранилища, например лайков
+    default void evict(int id) {
+    }
 }
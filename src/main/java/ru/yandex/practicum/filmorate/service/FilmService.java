@@ -1,21 +1,40 @@
 package ru.yandex.practicum.filmorate.service;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeResult;
+import ru.yandex.practicum.filmorate.model.Lookup;
+import ru.yandex.practicum.filmorate.model.Page;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface FilmService {
     List<Film> getAllFilms();
 
+    Page<Film> getFilmsPage(Integer after, Integer limit);
+
+    void exportFilms(Consumer<Film> action);
+
     Film getFilm(int id);
 
+    Lookup<Film> getFilms(List<Integer> ids);
+
     Film addFilm(Film film);
 
+    List<Integer> addFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     void like(int id, int userId);
 
     void deleteLike(int id, int userId);
 
+    List<LikeResult> applyLikes(List<LikeOperation> operations);
+
     List<Film> getTopLikes(int count);
+
+    List<Film> getSimilarFilms(int id, int count);
+
+    List<Film> getRecommendations(int userId, int limit);
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.RecordingStatus;
+
+public interface FlightRecorderService {
+    RecordingStatus getStatus();
+
+    RecordingStatus start(String settings);
+
+    RecordingStatus dump();
+
+    RecordingStatus stop();
+}
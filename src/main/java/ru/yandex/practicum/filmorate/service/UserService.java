@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate.service;
 
+import ru.yandex.practicum.filmorate.model.Lookup;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
@@ -7,10 +9,16 @@ import java.util.List;
 public interface UserService {
     List<User> getAllUsers();
 
+    Page<User> getUsersPage(Integer after, Integer limit);
+
     User getUser(int id);
 
+    Lookup<User> getUsers(List<Integer> ids);
+
     User addUser(User user);
 
+    List<Integer> addUsers(List<User> users);
+
     User updateUser(User user);
 
     void addFriend(int userId, int friendId);
@@ -20,4 +28,6 @@ public interface UserService {
     List<User> getAllFriends(int userId);
 
     List<User> getCommonFriends(int userId, int otherId);
+
+    List<User> getFriendSuggestions(int userId, int limit);
 }
\ No newline at end of file
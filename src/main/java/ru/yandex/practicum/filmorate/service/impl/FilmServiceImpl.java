@@ -3,15 +3,35 @@ package ru.yandex.practicum.filmorate.service.impl;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dao.LikesDao;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.index.SimilarFilmsIndex;
+import ru.yandex.practicum.filmorate.journal.LikeJournal;
+import ru.yandex.practicum.filmorate.journal.PendingLikes;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeResult;
+import ru.yandex.practicum.filmorate.model.Lookup;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.repository.FilmStorage;
 import ru.yandex.practicum.filmorate.repository.UserStorage;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.util.SingleFlight;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -19,14 +39,43 @@ public class FilmServiceImpl implements FilmService {
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
     private final LikesDao likesDao;
+    private final PopularityIndex popularityIndex;
+    private final LikesMatrix likesMatrix;
+    private final SimilarFilmsIndex similarFilmsIndex;
+    private final LikeJournal likeJournal;
+    private final PendingLikes pendingLikes;
+    private final int maxPageSize;
+    private final int recommendationNeighbours;
+    private final long recommendationTimeoutMillis;
+    private final SingleFlight<Integer, Film> filmFlight;
+    private final SingleFlight<Integer, List<Film>> topFlight;
 
     @Autowired
-    public FilmServiceImpl(@Qualifier("FilmDbStorage") FilmStorage filmStorage,
-                           @Qualifier("UserDbStorage") UserStorage userStorage,
-                           LikesDao likesDao) {
+    public FilmServiceImpl(@Qualifier("filmStorage") FilmStorage filmStorage,
+                           @Qualifier("userStorage") UserStorage userStorage,
+                           LikesDao likesDao,
+                           PopularityIndex popularityIndex,
+                           LikesMatrix likesMatrix,
+                           SimilarFilmsIndex similarFilmsIndex,
+                           LikeJournal likeJournal,
+                           PendingLikes pendingLikes,
+                           @Value("${filmorate.page.max-size}") int maxPageSize,
+                           @Value("${filmorate.recommendations.neighbours}") int recommendationNeighbours,
+                           @Value("${filmorate.recommendations.timeout-ms}") long recommendationTimeoutMillis,
+                           @Value("${filmorate.single-flight.timeout-ms}") long singleFlightTimeoutMillis) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
         this.likesDao = likesDao;
+        this.popularityIndex = popularityIndex;
+        this.likesMatrix = likesMatrix;
+        this.similarFilmsIndex = similarFilmsIndex;
+        this.likeJournal = likeJournal;
+        this.pendingLikes = pendingLikes;
+        this.maxPageSize = maxPageSize;
+        this.recommendationNeighbours = recommendationNeighbours;
+        this.recommendationTimeoutMillis = recommendationTimeoutMillis;
+        this.filmFlight = new SingleFlight<>("фильма", singleFlightTimeoutMillis);
+        this.topFlight = new SingleFlight<>("популярных фильмов", singleFlightTimeoutMillis);
     }
 
     @Override
@@ -37,57 +86,241 @@ public class FilmServiceImpl implements FilmService {
         return films;
     }
 
+    @Override
+    public Page<Film> getFilmsPage(Integer after, Integer limit) {
+        int afterId = resolveAfter(after);
+        int pageSize = resolveLimit(limit);
+        List<Film> films = filmStorage.getPage(afterId, pageSize + 1);
+        Page<Film> page = Page.of(films, pageSize, Film::getId);
+        log.info(String.format("Возвращена страница из %d фильмов после id=%d", page.getItems().size(), afterId));
+
+        return page;
+    }
+
+    @Override
+    public void exportFilms(Consumer<Film> action) {
+        int[] count = new int[1];
+        filmStorage.forEach(film -> {
+            action.accept(film);
+            count[0]++;
+        });
+        log.info(String.format("Выгружено фильмов: %d", count[0]));
+    }
+
     @Override
     public Film getFilm(int id) {
-        Film film = filmStorage.getById(id);
+        Film film = filmFlight.execute(id, () -> filmStorage.getById(id));
         log.info("Возвращен фильм: " + film);
 
         return film;
     }
 
+    @Override
+    public Lookup<Film> getFilms(List<Integer> ids) {
+        checkIds(ids);
+        Lookup<Film> films = Lookup.of(ids, filmStorage.getByIds(ids), Film::getId);
+        log.info(String.format("Возвращено %d фильмов по списку id, не найдены: %s",
+                films.getItems().size(), films.getMissingIds()));
+
+        return films;
+    }
+
     @Override
     public Film addFilm(Film film) {
         Film newFilm = filmStorage.save(film);
+        popularityIndex.put(newFilm.getId(), 0);
         log.info(String.format("Добавлен фильм: id=%d, name=%s", newFilm.getId(), newFilm.getName()));
 
         return newFilm;
     }
 
+    @Override
+    public List<Integer> addFilms(List<Film> films) {
+        List<Integer> ids = filmStorage.saveAll(films);
+        for (Integer id : ids) {
+            popularityIndex.put(id, 0);
+        }
+        log.info(String.format("Добавлено фильмов: %d", ids.size()));
+
+        return ids;
+    }
+
     @Override
     public Film updateFilm(Film film) {
-        filmStorage.getById(film.getId()); // проверка наличия фильма
-        filmStorage.save(film);
-        log.info(String.format("Обновлен фильм: id=%d, name=%s", film.getId(), film.getName()));
+        Film updatedFilm = filmStorage.save(film);
+        log.info(String.format("Обновлен фильм: id=%d, name=%s", updatedFilm.getId(), updatedFilm.getName()));
 
-        return film;
+        return updatedFilm;
     }
 
     @Override
     public void like(int id, int userId) {
-        filmStorage.getById(id); // проверка наличия фильма
-        userStorage.getById(userId); // проверка наличия пользователя
-        likesDao.save(id, userId);
+        checkFilmExists(id);
+        checkUserExists(userId);
+        boolean changed = likeJournal.isEnabled()
+                ? likeJournal.append(List.of(new LikeOperation(id, userId, LikeOperation.Action.LIKE)))[0]
+                : likesDao.save(id, userId);
+        if (changed) {
+            filmStorage.evict(id);
+            popularityIndex.increment(id);
+            similarFilmsIndex.markChanged(id);
+        }
         log.info(String.format("Поставлен лайк фильму с id=%d пользователем с id=%d", id, userId));
     }
 
     @Override
     public void deleteLike(int id, int userId) {
-        filmStorage.getById(id); // проверка наличия фильма
-        userStorage.getById(userId); // проверка наличия пользователя
-        if (!likesDao.getAllByFilmId(id).contains(userId)) {
+        checkFilmExists(id);
+        checkUserExists(userId);
+        boolean exists = likeJournal.isEnabled() ? pendingLikes.isLiked(id, userId) : likesDao.exists(id, userId);
+        if (!exists) {
             throw new UserNotFoundException(String.format("Пользователь с id=%d не ставил лайк фильму с id=%d.",
                     userId, id));
         }
-        likesDao.delete(id, userId);
+        boolean changed = likeJournal.isEnabled()
+                ? likeJournal.append(List.of(new LikeOperation(id, userId, LikeOperation.Action.UNLIKE)))[0]
+                : likesDao.delete(id, userId);
+        if (changed) {
+            filmStorage.evict(id);
+            popularityIndex.decrement(id);
+            similarFilmsIndex.markChanged(id);
+        }
         log.info(String.format("Удален лайк фильму с id=%d пользователем с id=%d", id, userId));
     }
 
+    @Override
+    public List<LikeResult> applyLikes(List<LikeOperation> operations) {
+        Set<Integer> films = filmStorage.getExistingIds(operations.stream()
+                .map(LikeOperation::getFilmId)
+                .collect(Collectors.toSet()));
+        Set<Integer> users = userStorage.getExistingIds(operations.stream()
+                .map(LikeOperation::getUserId)
+                .collect(Collectors.toSet()));
+        LikeResult[] results = new LikeResult[operations.size()];
+        // для каждой пары фильм-пользователь итоговое состояние задает последняя операция, остальные отменяются
+        Map<Long, Integer> lastByPair = new HashMap<>();
+        for (int i = 0; i < operations.size(); i++) {
+            LikeOperation operation = operations.get(i);
+            if (!films.contains(operation.getFilmId())) {
+                results[i] = LikeResult.of(operation, LikeResult.Status.FILM_NOT_FOUND);
+            } else if (!users.contains(operation.getUserId())) {
+                results[i] = LikeResult.of(operation, LikeResult.Status.USER_NOT_FOUND);
+            } else {
+                long pair = ((long) operation.getFilmId() << 32) | operation.getUserId();
+                Integer previous = lastByPair.put(pair, i);
+                if (previous != null) {
+                    results[previous] = LikeResult.of(operations.get(previous), LikeResult.Status.CANCELLED);
+                }
+            }
+        }
+        List<Integer> indexes = new ArrayList<>(lastByPair.values());
+        indexes.sort(null);
+        List<LikeOperation> coalesced = indexes.stream()
+                .map(operations::get)
+                .collect(Collectors.toList());
+        boolean[] applied;
+        if (coalesced.isEmpty()) {
+            applied = new boolean[0];
+        } else {
+            applied = likeJournal.isEnabled() ? likeJournal.append(coalesced) : likesDao.applyBatch(coalesced);
+        }
+        int appliedCount = 0;
+        for (int i = 0; i < coalesced.size(); i++) {
+            LikeOperation operation = coalesced.get(i);
+            results[indexes.get(i)] = LikeResult.of(operation,
+                    applied[i] ? LikeResult.Status.APPLIED : LikeResult.Status.UNCHANGED);
+            if (!applied[i]) {
+                continue;
+            }
+            appliedCount++;
+            filmStorage.evict(operation.getFilmId());
+            if (operation.getAction() == LikeOperation.Action.LIKE) {
+                popularityIndex.increment(operation.getFilmId());
+            } else {
+                popularityIndex.decrement(operation.getFilmId());
+            }
+            similarFilmsIndex.markChanged(operation.getFilmId());
+        }
+        log.info(String.format("Обработан пакет из %d операций с лайками, применено %d",
+                operations.size(), appliedCount));
+
+        return Arrays.asList(results);
+    }
+
     @Override
     public List<Film> getTopLikes(int count) {
-        List<Film> topLikes = likesDao.getTop(count);
+        List<Film> topLikes = topFlight.execute(count, () -> filmStorage.getByIds(popularityIndex.getTop(count)));
         log.info(String.format("Возвращен список из %d фильмов с наибольшим количеством лайков: %s",
                 topLikes.size(), topLikes));
 
         return topLikes;
     }
+
+    @Override
+    public List<Film> getSimilarFilms(int id, int count) {
+        checkFilmExists(id);
+        int similarCount = resolveLimit(count);
+        List<Integer> ids = Arrays.stream(similarFilmsIndex.getSimilar(id, similarCount))
+                .boxed()
+                .collect(Collectors.toList());
+        List<Film> similarFilms = filmStorage.getByIds(ids);
+        log.info(String.format("Возвращен список из %d фильмов, похожих на фильм с id=%d: %s",
+                similarFilms.size(), id, similarFilms));
+
+        return similarFilms;
+    }
+
+    @Override
+    public List<Film> getRecommendations(int userId, int limit) {
+        checkUserExists(userId);
+        int recommendationsCount = resolveLimit(limit);
+        List<Integer> ids = Arrays.stream(likesMatrix.recommend(userId, recommendationsCount,
+                        recommendationNeighbours, recommendationTimeoutMillis))
+                .boxed()
+                .collect(Collectors.toList());
+        List<Film> recommendations = filmStorage.getByIds(ids);
+        log.info(String.format("Возвращен список из %d рекомендованных фильмов для пользователя с id=%d: %s",
+                recommendations.size(), userId, recommendations));
+
+        return recommendations;
+    }
+
+    private void checkFilmExists(int id) {
+        if (!filmStorage.exists(id)) {
+            throw new FilmNotFoundException(String.format("Фильм с id=%d не найден.", id));
+        }
+    }
+
+    private void checkUserExists(int id) {
+        if (!userStorage.exists(id)) {
+            throw new UserNotFoundException(String.format("Пользователь с id=%d не найден.", id));
+        }
+    }
+
+    private void checkIds(List<Integer> ids) {
+        if (ids.isEmpty() || ids.size() > maxPageSize) {
+            throw new IncorrectParameterException(String.format("Параметр ids должен содержать от 1 до %d значений.",
+                    maxPageSize));
+        }
+    }
+
+    private int resolveAfter(Integer after) {
+        if (after == null) {
+            return 0;
+        }
+        if (after < 0) {
+            throw new IncorrectParameterException("Параметр after не может быть отрицательным.");
+        }
+        return after;
+    }
+
+    private int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return maxPageSize;
+        }
+        if (limit <= 0) {
+            throw new IncorrectParameterException("Параметр limit должен быть положительным.");
+        }
+        return Math.min(limit, maxPageSize);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+package ru.yandex.practicum.filmorate.service.impl;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.jfr.CacheEvent;
+import ru.yandex.practicum.filmorate.jfr.RepositoryEvent;
+import ru.yandex.practicum.filmorate.jfr.RequestEvent;
+import ru.yandex.practicum.filmorate.model.RecordingStatus;
+import ru.yandex.practicum.filmorate.service.FlightRecorderService;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// одна запись JFR на процесс: запускается и сбрасывается в файл без перезапуска сервиса
+@Service
+@ConditionalOnProperty("filmorate.jfr.admin.enabled")
+@Slf4j
+public class FlightRecorderServiceImpl implements FlightRecorderService {
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    // только встроенные настройки JDK: произвольное имя читалось бы как путь к файлу на сервере
+    private static final Set<String> SETTINGS = Set.of("default", "profile");
+    private final Path directory;
+    private final long maxSizeBytes;
+    private final int maxFiles;
+    private Recording recording;
+    private String settings;
+    private Path lastFile;
+
+    public FlightRecorderServiceImpl(@Value("${filmorate.jfr.directory}") String directory,
+                                     @Value("${filmorate.jfr.max-size-bytes}") long maxSizeBytes,
+                                     @Value("${filmorate.jfr.max-files}") int maxFiles) {
+        this.directory = Paths.get(directory);
+        this.maxSizeBytes = maxSizeBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    @Override
+    public synchronized RecordingStatus getStatus() {
+        return status();
+    }
+
+    @Override
+    public synchronized RecordingStatus start(String settings) {
+        if (recording != null) {
+            throw new IncorrectParameterException("Запись JFR уже запущена.");
+        }
+        if (!SETTINGS.contains(settings)) {
+            throw new IncorrectParameterException(String.format("Настройки JFR %s не найдены.", settings));
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (NoSuchFileException ex) {
+            throw new IncorrectParameterException(String.format("Настройки JFR %s не найдены.", settings));
+        } catch (IOException | ParseException ex) {
+            throw new IllegalStateException("Не удалось прочитать настройки JFR " + settings, ex);
+        }
+        Recording started = new Recording(configuration);
+        started.setName("filmorate");
+        // размер ограничен, чтобы забытая запись не заняла весь диск
+        started.setMaxSize(maxSizeBytes);
+        started.enable(RequestEvent.class);
+        started.enable(RepositoryEvent.class);
+        started.enable(CacheEvent.class);
+        started.start();
+        recording = started;
+        this.settings = settings;
+        log.info("Запущена запись JFR с настройками {}", settings);
+
+        return status();
+    }
+
+    @Override
+    public synchronized RecordingStatus dump() {
+        checkRunning();
+        lastFile = dumpToFile();
+        log.info("Запись JFR сохранена в файл {}", lastFile);
+
+        return status();
+    }
+
+    @Override
+    public synchronized RecordingStatus stop() {
+        checkRunning();
+        recording.stop();
+        try {
+            lastFile = dumpToFile();
+        } finally {
+            recording.close();
+            recording = null;
+        }
+        log.info("Запись JFR остановлена и сохранена в файл {}", lastFile);
+
+        return status();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private void checkRunning() {
+        if (recording == null) {
+            throw new IncorrectParameterException("Запись JFR не запущена.");
+        }
+    }
+
+    private Path dumpToFile() {
+        Path file = directory.resolve("filmorate-" + LocalDateTime.now().format(FILE_TIME) + ".jfr");
+        try {
+            Files.createDirectories(directory);
+            recording.dump(file);
+            deleteOldFiles();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return file.toAbsolutePath();
+    }
+
+    // хранятся только последние maxFiles записей; время в имени файла сортируется как строка
+    private void deleteOldFiles() throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(path -> path.getFileName().toString().matches("filmorate-.*\\.jfr"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (Path old : files.subList(0, Math.max(0, files.size() - maxFiles))) {
+            Files.deleteIfExists(old);
+            log.info("Удален старый файл записи JFR {}", old);
+        }
+    }
+
+    private RecordingStatus status() {
+        return new RecordingStatus(recording != null, recording != null ? settings : null,
+                recording != null ? recording.getStartTime() : null, lastFile != null ? lastFile.toString() : null);
+    }
+}
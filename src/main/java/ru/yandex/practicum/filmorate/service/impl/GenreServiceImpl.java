@@ -3,7 +3,7 @@ package ru.yandex.practicum.filmorate.service.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.dao.GenreDao;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
@@ -13,11 +13,11 @@ import java.util.List;
 @Slf4j
 @RequiredArgsConstructor
 public class GenreServiceImpl implements GenreService {
-    private final GenreDao genreDao;
+    private final ReferenceDataCache referenceData;
 
     @Override
     public List<Genre> getAllGenres() {
-        List<Genre> genres = genreDao.getAll();
+        List<Genre> genres = referenceData.getAllGenres();
         log.info("Возвращен список жанров: " + genres.toString());
 
         return genres;
@@ -25,7 +25,7 @@ public class GenreServiceImpl implements GenreService {
 
     @Override
     public Genre getGenreById(int id) {
-        Genre genre = genreDao.getById(id);
+        Genre genre = referenceData.getGenre(id);
         log.info("Возвращен жанр: " + genre);
 
         return genre;
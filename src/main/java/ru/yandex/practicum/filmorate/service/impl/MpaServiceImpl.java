@@ -3,7 +3,7 @@ package ru.yandex.practicum.filmorate.service.impl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.dao.MpaDao;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
@@ -13,11 +13,11 @@ import java.util.List;
 @Slf4j
 @RequiredArgsConstructor
 public class MpaServiceImpl implements MpaService {
-    private final MpaDao mpaDao;
+    private final ReferenceDataCache referenceData;
 
     @Override
     public List<Mpa> getAllMpa() {
-        List<Mpa> mpaList = mpaDao.getAll();
+        List<Mpa> mpaList = referenceData.getAllMpa();
         log.info("Возвращен список рейтингов: " + mpaList.toString());
 
         return mpaList;
@@ -25,7 +25,7 @@ public class MpaServiceImpl implements MpaService {
 
     @Override
     public Mpa getMpaById(int id) {
-        Mpa mpa = mpaDao.getById(id);
+        Mpa mpa = referenceData.getMpa(id);
         log.info("Возвращен рейтинг: " + mpa);
 
         return mpa;
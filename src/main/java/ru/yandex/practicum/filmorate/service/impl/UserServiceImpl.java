@@ -3,24 +3,43 @@ package ru.yandex.practicum.filmorate.service.impl;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dao.FriendsDao;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.model.Lookup;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.UserStorage;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class UserServiceImpl implements UserService {
     private final UserStorage userStorage;
     private final FriendsDao friendsDao;
+    private final FriendGraph friendGraph;
+    private final int maxPageSize;
+    private final int suggestionsMaxEdges;
 
     @Autowired
-    public UserServiceImpl(@Qualifier("UserDbStorage") UserStorage userStorage, FriendsDao friendsDao) {
+    public UserServiceImpl(@Qualifier("userStorage") UserStorage userStorage, FriendsDao friendsDao,
+                           FriendGraph friendGraph,
+                           @Value("${filmorate.page.max-size}") int maxPageSize,
+                           @Value("${filmorate.friends.suggestions.max-edges}") int suggestionsMaxEdges) {
         this.userStorage = userStorage;
         this.friendsDao = friendsDao;
+        this.friendGraph = friendGraph;
+        this.maxPageSize = maxPageSize;
+        this.suggestionsMaxEdges = suggestionsMaxEdges;
     }
 
     @Override
@@ -31,6 +50,17 @@ public class UserServiceImpl implements UserService {
         return users;
     }
 
+    @Override
+    public Page<User> getUsersPage(Integer after, Integer limit) {
+        int afterId = resolveAfter(after);
+        int pageSize = resolveLimit(limit);
+        List<User> users = userStorage.getPage(afterId, pageSize + 1);
+        Page<User> page = Page.of(users, pageSize, User::getId);
+        log.info(String.format("Возвращена страница из %d пользователей после id=%d", page.getItems().size(), afterId));
+
+        return page;
+    }
+
     @Override
     public User getUser(int id) {
         User user = userStorage.getById(id);
@@ -39,6 +69,16 @@ public class UserServiceImpl implements UserService {
         return user;
     }
 
+    @Override
+    public Lookup<User> getUsers(List<Integer> ids) {
+        checkIds(ids);
+        Lookup<User> users = Lookup.of(ids, userStorage.getByIds(ids), User::getId);
+        log.info(String.format("Возвращено %d пользователей по списку id, не найдены: %s",
+                users.getItems().size(), users.getMissingIds()));
+
+        return users;
+    }
+
     @Override
     public User addUser(User user) {
         if (user.getName() == null || user.getName().isEmpty()) {
@@ -50,9 +90,32 @@ public class UserServiceImpl implements UserService {
         return newUser;
     }
 
+    @Override
+    public List<Integer> addUsers(List<User> users) {
+        Set<String> emails = new HashSet<>();
+        Set<String> logins = new HashSet<>();
+        for (User user : users) {
+            if (!emails.add(user.getEmail())) {
+                throw new IncorrectParameterException(String.format("Email %s повторяется в запросе.",
+                        user.getEmail()));
+            }
+            if (!logins.add(user.getLogin())) {
+                throw new IncorrectParameterException(String.format("Логин %s повторяется в запросе.",
+                        user.getLogin()));
+            }
+            if (user.getName() == null || user.getName().isEmpty()) {
+                user.setName(user.getLogin());
+            }
+        }
+        List<Integer> ids = userStorage.saveAll(users);
+        log.info(String.format("Добавлено пользователей: %d", ids.size()));
+
+        return ids;
+    }
+
     @Override
     public User updateUser(User user) {
-        userStorage.getById(user.getId()); // проверка наличия пользователя
+        checkUserExists(user.getId());
         if (user.getName() == null || user.getName().isEmpty()) {
             user.setName(user.getLogin());
         }
@@ -64,23 +127,23 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public void addFriend(int userId, int friendId) {
-        userStorage.getById(userId); // проверка наличия пользователя
-        userStorage.getById(friendId); // проверка наличия пользователя
+        checkUserExists(userId);
+        checkUserExists(friendId);
         friendsDao.save(userId, friendId);
         log.info(String.format("Пользователь с id=%d добавил в друзья пользователя с id=%d.", userId, friendId));
     }
 
     @Override
     public void deleteFriend(int userId, int friendId) {
-        userStorage.getById(userId); // проверка наличия пользователя
-        userStorage.getById(friendId); // проверка наличия пользователя
+        checkUserExists(userId);
+        checkUserExists(friendId);
         friendsDao.delete(userId, friendId);
         log.info(String.format("Пользователь с id=%d удалил из друзей пользователя с id=%d.", userId, friendId));
     }
 
     @Override
     public List<User> getAllFriends(int userId) {
-        userStorage.getById(userId); // проверка наличия пользователя
+        checkUserExists(userId);
         List<User> userFriends = friendsDao.getAllById(userId);
         log.info(String.format("Возвращен список всех друзей пользователя с id=%d: %s", userId, userFriends));
         return userFriends;
@@ -88,11 +151,57 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public List<User> getCommonFriends(int userId, int otherId) {
-        userStorage.getById(userId); // проверка наличия пользователя
-        userStorage.getById(otherId); // проверка наличия пользователя
+        checkUserExists(userId);
+        checkUserExists(otherId);
         List<User> commonFriends = friendsDao.getCommonById(userId, otherId);
         log.info(String.format("Возвращен список всех общих друзей у пользователей с id=%d и id=%d: %s",
                 userId, otherId, commonFriends));
         return commonFriends;
     }
+
+    @Override
+    public List<User> getFriendSuggestions(int userId, int limit) {
+        checkUserExists(userId);
+        int suggestionsCount = resolveLimit(limit);
+        List<Integer> ids = Arrays.stream(friendGraph.suggest(userId, suggestionsCount, suggestionsMaxEdges))
+                .boxed()
+                .collect(Collectors.toList());
+        List<User> suggestions = userStorage.getByIds(ids);
+        log.info(String.format("Возвращен список из %d рекомендованных друзей для пользователя с id=%d: %s",
+                suggestions.size(), userId, suggestions));
+        return suggestions;
+    }
+
+    private void checkUserExists(int id) {
+        if (!userStorage.exists(id)) {
+            throw new UserNotFoundException(String.format("Пользователь с id=%d не найден.", id));
+        }
+    }
+
+    private void checkIds(List<Integer> ids) {
+        if (ids.isEmpty() || ids.size() > maxPageSize) {
+            throw new IncorrectParameterException(String.format("Параметр ids должен содержать от 1 до %d значений.",
+                    maxPageSize));
+        }
+    }
+
+    private int resolveAfter(Integer after) {
+        if (after == null) {
+            return 0;
+        }
+        if (after < 0) {
+            throw new IncorrectParameterException("Параметр after не может быть отрицательным.");
+        }
+        return after;
+    }
+
+    private int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return maxPageSize;
+        }
+        if (limit <= 0) {
+            throw new IncorrectParameterException("Параметр limit должен быть положительным.");
+        }
+        return Math.min(limit, maxPageSize);
+    }
 }
\ No newline at end of file
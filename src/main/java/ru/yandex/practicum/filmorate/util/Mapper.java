@@ -1,8 +1,6 @@
 package ru.yandex.practicum.filmorate.util;
 
-import ru.yandex.practicum.filmorate.dao.GenreDao;
-import ru.yandex.practicum.filmorate.dao.LikesDao;
-import ru.yandex.practicum.filmorate.dao.MpaDao;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
@@ -14,6 +12,7 @@ import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 public class Mapper {
     private Mapper() {
@@ -29,17 +28,20 @@ public class Mapper {
         return new User(id, email, login, name, birthday);
     }
 
-    public static Film makeFilm(ResultSet rs, int rowNum, LikesDao likesDao, GenreDao genreDao, MpaDao mpaDao) throws SQLException {
+    public static Film makeFilm(ResultSet rs, int rowNum, ReferenceDataCache referenceData) throws SQLException {
         int id = rs.getInt("id");
         String name = rs.getString("name");
         String description = rs.getString("description");
         LocalDate releaseDate = rs.getDate("release_date").toLocalDate();
         int duration = rs.getInt("duration");
-        int rate = likesDao.getAllByFilmId(id).size();
-        Set<Genre> genres = genreDao.getAllByFilmId(id);
-        Mpa mpa = mpaDao.getById(rs.getInt("mpa_id"));
+        int rate = rs.getInt("like_count");
+        Set<Genre> genres = new TreeSet<>();
+        int mpaId = rs.getInt("mpa_id");
+        Mpa mpa = rs.wasNull() ? null : referenceData.getMpa(mpaId);
+        Film film = new Film(id, name, description, releaseDate, duration, rate, genres, mpa);
+        film.setVersion(rs.getInt("version"));
 
-        return new Film(id, name, description, releaseDate, duration, rate, genres, mpa);
+        return film;
     }
 
     public static Map<String,Object> userToMap(User user) {
@@ -59,6 +61,8 @@ public class Mapper {
         filmMap.put("release_date", film.getReleaseDate());
         filmMap.put("duration", film.getDuration());
         filmMap.put("mpa_id", film.getMpa().getId());
+        filmMap.put("like_count", 0);
+        filmMap.put("version", 0);
 
         return filmMap;
     }
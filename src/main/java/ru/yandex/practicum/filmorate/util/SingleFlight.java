@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// одновременные одинаковые запросы выполняются один раз, остальные получают тот же результат или ту же ошибку
+@Slf4j
+public class SingleFlight<K, V> {
+    private final String name;
+    private final long timeoutMillis;
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlight(String name, long timeoutMillis) {
+        this.name = name;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public V execute(K key, Supplier<V> supplier) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing == null) {
+            return lead(key, flight, supplier);
+        }
+        try {
+            return existing.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            throw rethrow(ex.getCause());
+        } catch (TimeoutException ex) {
+            // зависший запрос не должен задерживать остальных дольше таймаута
+            log.warn("Запрос {} по ключу {} не завершился за {} мс, выполняется повторно", name, key, timeoutMillis);
+            return supplier.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание запроса " + name + " прервано.", ex);
+        }
+    }
+
+    // ключ освобождается до публикации результата, иначе пришедшие позже получат уже устаревшее значение
+    private V lead(K key, CompletableFuture<V> flight, Supplier<V> supplier) {
+        V value;
+        try {
+            value = supplier.get();
+        } catch (RuntimeException | Error ex) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(ex);
+            throw ex;
+        }
+        inFlight.remove(key, flight);
+        flight.complete(value);
+        return value;
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+}
@@ -1,3 +1,45 @@
+CREATE TABLE IF NOT EXISTS genres (
+	genre_id INTEGER NOT NULL GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	genre_name VARCHAR(14) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS mpa (
+	mpa_id INTEGER NOT NULL GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+	mpa_name VARCHAR(5) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS films (
+    id INTEGER NOT NULL GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(50) NOT NULL,
+    description VARCHAR(200),
+    release_date DATE,
+    duration INTEGER NOT NULL,
+    mpa_id INTEGER REFERENCES mpa(mpa_id)
+);
+
+CREATE TABLE IF NOT EXISTS film_genre (
+    film_id INTEGER NOT NULL REFERENCES films(id),
+    genre_id INTEGER NOT NULL REFERENCES genres(genre_id)
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id INTEGER NOT NULL GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email VARCHAR(255) UNIQUE NOT NULL,
+    login VARCHAR(255) UNIQUE NOT NULL,
+    name VARCHAR,
+    birthday DATE
+);
+
+CREATE TABLE IF NOT EXISTS likes (
+    film_id INTEGER NOT NULL REFERENCES films(id),
+    user_id INTEGER NOT NULL REFERENCES users(id)
+);
+
+CREATE TABLE IF NOT EXISTS friends (
+    user_id INTEGER NOT NULL REFERENCES users(id),
+    friend_id INTEGER NOT NULL REFERENCES users(id)
+);
+
 INSERT INTO genres (genre_name)
 SELECT 'Комедия'
 WHERE NOT EXISTS (
@@ -0,0 +1,65 @@
+CREATE TABLE film_genre_v3 (
+    film_id INTEGER NOT NULL,
+    genre_id INTEGER NOT NULL,
+    PRIMARY KEY (film_id, genre_id)
+);
+
+INSERT INTO film_genre_v3 (film_id, genre_id)
+SELECT DISTINCT film_id, genre_id
+FROM film_genre;
+
+DROP TABLE film_genre;
+
+ALTER TABLE film_genre_v3 RENAME TO film_genre;
+
+CREATE INDEX film_genre_genre_id_idx ON film_genre (genre_id);
+
+ALTER TABLE film_genre ADD FOREIGN KEY (film_id) REFERENCES films(id);
+
+ALTER TABLE film_genre ADD FOREIGN KEY (genre_id) REFERENCES genres(genre_id);
+
+CREATE TABLE likes_v3 (
+    film_id INTEGER NOT NULL,
+    user_id INTEGER NOT NULL,
+    PRIMARY KEY (film_id, user_id)
+);
+
+INSERT INTO likes_v3 (film_id, user_id)
+SELECT DISTINCT film_id, user_id
+FROM likes;
+
+DROP TABLE likes;
+
+ALTER TABLE likes_v3 RENAME TO likes;
+
+CREATE INDEX likes_user_id_idx ON likes (user_id);
+
+ALTER TABLE likes ADD FOREIGN KEY (film_id) REFERENCES films(id);
+
+ALTER TABLE likes ADD FOREIGN KEY (user_id) REFERENCES users(id);
+
+CREATE TABLE friends_v3 (
+    user_id INTEGER NOT NULL,
+    friend_id INTEGER NOT NULL,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+-- список друзей отдается в порядке добавления, поэтому порядок строк сохраняется
+INSERT INTO friends_v3 (user_id, friend_id)
+SELECT user_id, friend_id
+FROM friends
+GROUP BY user_id, friend_id
+ORDER BY MIN(_ROWID_);
+
+DROP TABLE friends;
+
+ALTER TABLE friends_v3 RENAME TO friends;
+
+CREATE INDEX friends_friend_id_idx ON friends (friend_id);
+
+ALTER TABLE friends ADD FOREIGN KEY (user_id) REFERENCES users(id);
+
+ALTER TABLE friends ADD FOREIGN KEY (friend_id) REFERENCES users(id);
+
+-- после удаления дублей счетчик лайков пересчитывается заново
+UPDATE films AS f SET like_count = (SELECT COUNT(*) FROM likes AS l WHERE l.film_id = f.id);
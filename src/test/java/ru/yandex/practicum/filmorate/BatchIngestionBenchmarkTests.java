@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class BatchIngestionBenchmarkTests {
+	private static final int COUNT = 10_000;
+	private final FilmService filmService;
+	private final UserService userService;
+
+	@Test
+	public void filmsBatchThroughput() {
+		filmService.addFilms(films("warmup", COUNT));
+		for (Film film : films("warmup-single", COUNT)) {
+			filmService.addFilm(film);
+		}
+
+		long singleNanos = measure(() -> {
+			for (Film film : films("single", COUNT)) {
+				filmService.addFilm(film);
+			}
+		});
+		long batchNanos = measure(() -> filmService.addFilms(films("batch", COUNT)));
+		log.info("Фильмы: по одному {} в секунду, пакетом {} в секунду",
+				perSecond(singleNanos), perSecond(batchNanos));
+
+		assertThat(batchNanos).isLessThan(singleNanos);
+	}
+
+	@Test
+	public void usersBatchThroughput() {
+		userService.addUsers(users("warmup", COUNT));
+		for (User user : users("warmup-single", COUNT)) {
+			userService.addUser(user);
+		}
+
+		long singleNanos = measure(() -> {
+			for (User user : users("single", COUNT)) {
+				userService.addUser(user);
+			}
+		});
+		long batchNanos = measure(() -> userService.addUsers(users("batch", COUNT)));
+		log.info("Пользователи: по одному {} в секунду, пакетом {} в секунду",
+				perSecond(singleNanos), perSecond(batchNanos));
+
+		assertThat(batchNanos).isLessThan(singleNanos);
+	}
+
+	private List<Film> films(String prefix, int count) {
+		List<Film> films = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			films.add(new Film(prefix + i, "benchmark film", LocalDate.of(2000, 1, 1), 100,
+					new TreeSet<>(Set.of(new Genre(i % 6 + 1, null), new Genre((i + 1) % 6 + 1, null))),
+					new Mpa(i % 5 + 1, null)));
+		}
+		return films;
+	}
+
+	private List<User> users(String prefix, int count) {
+		List<User> users = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			users.add(new User(prefix + i + "@yandex.ru", prefix + i, "user", LocalDate.of(1990, 1, 1)));
+		}
+		return users;
+	}
+
+	private long measure(Runnable action) {
+		long start = System.nanoTime();
+		action.run();
+		return System.nanoTime() - start;
+	}
+
+	private long perSecond(long nanos) {
+		return COUNT * 1_000_000_000L / nanos;
+	}
+}
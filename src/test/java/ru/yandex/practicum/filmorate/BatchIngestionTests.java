@@ -0,0 +1,227 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.LikeResult;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.FilmDbStorage;
+import ru.yandex.practicum.filmorate.repository.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class BatchIngestionTests {
+	private final JdbcTemplate jdbcTemplate;
+	private final FilmDbStorage filmStorage;
+	private final UserDbStorage userStorage;
+	private final PopularityIndex popularityIndex;
+	private final LikesMatrix likesMatrix;
+	private final ObjectMapper objectMapper;
+	private final MockMvc mockMvc;
+
+	@Test
+	public void addFilmsBatch() throws Exception {
+		List<Film> films = new ArrayList<>();
+		for (int i = 0; i < 1200; i++) {
+			films.add(new Film("film" + i, "batch film", LocalDate.of(2000, 1, 1), 100,
+					new TreeSet<>(Set.of(new Genre(i % 6 + 1, null), new Genre((i + 1) % 6 + 1, null))),
+					new Mpa(i % 5 + 1, null)));
+		}
+		String body = postBatch("/films/batch", films)
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		List<Integer> ids = objectMapper.readValue(body, new TypeReference<>() {
+		});
+
+		assertThat(ids).hasSize(1200).doesNotHaveDuplicates();
+		Film film = filmStorage.getById(ids.get(7));
+		assertThat(film.getName()).isEqualTo("film7");
+		assertThat(film.getMpa()).isEqualTo(new Mpa(3, "PG-13"));
+		assertThat(film.getGenres()).extracting(Genre::getId).containsExactly(2, 3);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_genre", Integer.class)).isEqualTo(2400);
+		assertThat(popularityIndex.getTop(2000)).hasSize(1200);
+	}
+
+	@Test
+	public void failedFilmsChunkRollsBackWholeBatch() {
+		List<Film> films = new ArrayList<>();
+		for (int i = 0; i < 700; i++) {
+			// имя длиннее колонки films.name ломает только второй пакет из 500
+			films.add(new Film(i == 600 ? "x".repeat(51) : "film" + i, "batch film", LocalDate.of(2000, 1, 1), 100,
+					new TreeSet<>(Set.of(new Genre(1, null))), new Mpa(1, null)));
+		}
+
+		assertThatThrownBy(() -> filmStorage.saveAll(films)).isInstanceOf(DataAccessException.class);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Integer.class)).isZero();
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_genre", Integer.class)).isZero();
+		assertThat(filmStorage.exists(1)).isFalse();
+	}
+
+	@Test
+	public void addFilmsBatchWithInvalidFilm() throws Exception {
+		List<Film> films = List.of(
+				new Film("film1", "batch film", LocalDate.of(2000, 1, 1), 100, new TreeSet<>(), new Mpa(1, null)),
+				new Film("", "batch film", LocalDate.of(2000, 1, 1), 100, new TreeSet<>(), new Mpa(1, null)));
+
+		postBatch("/films/batch", films)
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.message", startsWith("Неверно заполнено поле films[1].name: ")));
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Integer.class)).isZero();
+	}
+
+	@Test
+	public void addFilmsBatchWithUnknownGenre() throws Exception {
+		List<Film> films = List.of(
+				new Film("film1", "batch film", LocalDate.of(2000, 1, 1), 100, new TreeSet<>(), new Mpa(1, null)),
+				new Film("film2", "batch film", LocalDate.of(2000, 1, 1), 100,
+						new TreeSet<>(Set.of(new Genre(99, null))), new Mpa(1, null)));
+
+		postBatch("/films/batch", films)
+				.andExpect(status().isNotFound());
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Integer.class)).isZero();
+	}
+
+	@Test
+	public void addUsersBatch() throws Exception {
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 700; i++) {
+			users.add(new User(i + "@yandex.ru", "user" + i, i % 2 == 0 ? "" : "name" + i,
+					LocalDate.of(1990, 1, 1)));
+		}
+		String body = postBatch("/users/batch", users)
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		List<Integer> ids = objectMapper.readValue(body, new TypeReference<>() {
+		});
+
+		assertThat(ids).hasSize(700).doesNotHaveDuplicates();
+		assertThat(userStorage.getById(ids.get(0)).getName()).isEqualTo("user0");
+		assertThat(userStorage.getById(ids.get(1)).getName()).isEqualTo("name1");
+	}
+
+	@Test
+	public void failedUsersChunkRollsBackWholeBatch() {
+		jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) " +
+				"VALUES ('taken@yandex.ru', 'taken', 'taken', '1990-01-01')");
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 700; i++) {
+			users.add(new User(i == 600 ? "taken@yandex.ru" : i + "@yandex.ru", "user" + i, "name" + i,
+					LocalDate.of(1990, 1, 1)));
+		}
+
+		assertThatThrownBy(() -> userStorage.saveAll(users)).isInstanceOf(DataAccessException.class);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class)).isEqualTo(1);
+	}
+
+	@Test
+	public void addUsersBatchWithRepeatedLogin() throws Exception {
+		List<User> users = List.of(
+				new User("1@yandex.ru", "user", "first", LocalDate.of(1990, 1, 1)),
+				new User("2@yandex.ru", "user", "second", LocalDate.of(1990, 1, 1)));
+
+		postBatch("/users/batch", users)
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.message").value("Логин user повторяется в запросе."));
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class)).isZero();
+	}
+
+	@Test
+	public void applyLikesBatch() throws Exception {
+		addFilmsAndUsers();
+		List<LikeOperation> operations = List.of(
+				new LikeOperation(1, 1, LikeOperation.Action.LIKE),
+				new LikeOperation(2, 1, LikeOperation.Action.LIKE),
+				new LikeOperation(2, 1, LikeOperation.Action.UNLIKE),
+				new LikeOperation(3, 2, LikeOperation.Action.LIKE),
+				new LikeOperation(99, 1, LikeOperation.Action.LIKE),
+				new LikeOperation(1, 99, LikeOperation.Action.LIKE),
+				new LikeOperation(1, 1, LikeOperation.Action.UNLIKE),
+				new LikeOperation(2, 2, LikeOperation.Action.LIKE),
+				new LikeOperation(2, 2, LikeOperation.Action.LIKE),
+				new LikeOperation(3, 3, LikeOperation.Action.LIKE));
+		String body = postBatch("/films/likes/batch", operations)
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		List<LikeResult> results = objectMapper.readValue(body, new TypeReference<>() {
+		});
+
+		assertThat(results).extracting(LikeResult::getStatus).containsExactly(
+				LikeResult.Status.CANCELLED,
+				LikeResult.Status.CANCELLED,
+				LikeResult.Status.UNCHANGED,
+				LikeResult.Status.APPLIED,
+				LikeResult.Status.FILM_NOT_FOUND,
+				LikeResult.Status.USER_NOT_FOUND,
+				LikeResult.Status.APPLIED,
+				LikeResult.Status.CANCELLED,
+				LikeResult.Status.APPLIED,
+				LikeResult.Status.UNCHANGED);
+		assertThat(results.get(4).getFilmId()).isEqualTo(99);
+		assertThat(jdbcTemplate.queryForList("SELECT CONCAT(film_id, '-', user_id) FROM likes ORDER BY film_id, user_id",
+				String.class)).containsExactly("2-2", "3-2", "3-3");
+		assertThat(jdbcTemplate.queryForList("SELECT like_count FROM films ORDER BY id", Integer.class))
+				.containsExactly(0, 1, 2);
+		assertThat(popularityIndex.getTop(3)).containsExactly(3, 2, 1);
+	}
+
+	@Test
+	public void applyLikesBatchWithInvalidOperation() throws Exception {
+		addFilmsAndUsers();
+		List<LikeOperation> operations = List.of(
+				new LikeOperation(2, 1, LikeOperation.Action.LIKE),
+				new LikeOperation(2, 1, null));
+
+		postBatch("/films/likes/batch", operations)
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.message", startsWith("Неверно заполнено поле operations[1].action: ")));
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Integer.class)).isEqualTo(2);
+	}
+
+	private void addFilmsAndUsers() {
+		TestData.addFilms(jdbcTemplate, 3);
+		TestData.addUsers(jdbcTemplate, 3);
+		jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (1, 1), (3, 3)");
+		jdbcTemplate.update("UPDATE films SET like_count = 1 WHERE id IN (1, 3)");
+		popularityIndex.reload();
+		likesMatrix.reload();
+	}
+
+	private ResultActions postBatch(String url, Object payload) throws Exception {
+		return mockMvc.perform(post(url)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsString(payload)));
+	}
+}
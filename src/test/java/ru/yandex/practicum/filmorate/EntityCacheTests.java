@@ -0,0 +1,154 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.cache.CachingFilmStorage;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.FilmDbStorage;
+import ru.yandex.practicum.filmorate.repository.FilmStorage;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Import(QueryCounter.Config.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class EntityCacheTests {
+	private final JdbcTemplate jdbcTemplate;
+	private final FilmService filmService;
+	private final UserService userService;
+	private final MeterRegistry registry;
+	private final QueryCounter queryCounter;
+	private final FilmDbStorage filmDbStorage;
+
+	@BeforeEach
+	public void init() {
+		userService.addUser(new User("1@yandex.ru", "user1", "first", LocalDate.of(1992, 3, 4)));
+		userService.addUser(new User("2@yandex.ru", "user2", "second", LocalDate.of(1994, 10, 14)));
+		filmService.addFilm(new Film("film", "cached film", LocalDate.of(2000, 1, 1), 100,
+				new TreeSet<>(Set.of(new Genre(1, null))), new Mpa(1, null)));
+	}
+
+	@Test
+	public void bulkLoadRacingWithEvictionIsNotCached() throws Exception {
+		CountDownLatch loaded = new CountDownLatch(1);
+		CountDownLatch evicted = new CountDownLatch(1);
+		// пакетная загрузка прочитала строку и ждет, пока лайк изменит рейтинг и вытеснит фильм
+		FilmStorage delegate = (FilmStorage) Proxy.newProxyInstance(FilmStorage.class.getClassLoader(),
+				new Class<?>[]{FilmStorage.class}, (proxy, method, args) -> {
+					Object result = method.invoke(filmDbStorage, args);
+					if (method.getName().equals("getByIds") && loaded.getCount() > 0) {
+						loaded.countDown();
+						evicted.await();
+					}
+					return result;
+				});
+		CachingFilmStorage storage = new CachingFilmStorage(delegate, 1 << 20, new SimpleMeterRegistry());
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<List<Film>> popular = executor.submit(() -> storage.getByIds(List.of(1)));
+			loaded.await();
+			jdbcTemplate.update("UPDATE films SET like_count = 5 WHERE id = 1");
+			storage.evict(1);
+			evicted.countDown();
+
+			assertThat(popular.get().get(0).getRate()).isZero();
+			assertThat(storage.getByIds(List.of(1)).get(0).getRate()).isEqualTo(5);
+			assertThat(storage.getById(1).getRate()).isEqualTo(5);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void repeatedReadsAreServedFromCache() {
+		assertThat(filmService.getFilm(1).getName()).isEqualTo("film");
+		assertThat(userService.getUser(2).getLogin()).isEqualTo("user2");
+		int queries = countQueries(() -> {
+			assertThat(filmService.getFilm(1).getName()).isEqualTo("film");
+			assertThat(userService.getUser(2).getLogin()).isEqualTo("user2");
+			assertThat(filmService.getTopLikes(10)).extracting(Film::getId).containsExactly(1);
+		});
+
+		assertThat(queries).isZero();
+		assertThat(registry.get("cache.gets").tag("cache", "films").tag("result", "hit").functionCounter().count())
+				.isGreaterThanOrEqualTo(2);
+		assertThat(registry.get("cache.gets").tag("cache", "users").tag("result", "miss").functionCounter().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	public void missingIdsAreCached() {
+		assertThrows(FilmNotFoundException.class, () -> filmService.getFilm(99));
+		int queries = countQueries(() -> {
+			assertThrows(FilmNotFoundException.class, () -> filmService.getFilm(99));
+			assertThrows(FilmNotFoundException.class, () -> filmService.like(99, 1));
+		});
+
+		assertThat(queries).isZero();
+	}
+
+	@Test
+	public void likesAndUpdatesInvalidateFilm() {
+		assertThat(filmService.getFilm(1).getRate()).isZero();
+		filmService.like(1, 1);
+		filmService.like(1, 2);
+		assertThat(filmService.getFilm(1).getRate()).isEqualTo(2);
+		filmService.deleteLike(1, 2);
+		assertThat(filmService.getFilm(1).getRate()).isEqualTo(1);
+
+		filmService.updateFilm(new Film(1, "film", "updated film", LocalDate.of(2000, 1, 1), 100,
+				new TreeSet<>(Set.of(new Genre(2, null), new Genre(3, null))), new Mpa(1, null)));
+		Film film = filmService.getFilm(1);
+
+		assertThat(film.getDescription()).isEqualTo("updated film");
+		assertThat(film.getGenres()).extracting(Genre::getId).containsExactly(2, 3);
+		assertThat(film.getRate()).isEqualTo(1);
+	}
+
+	@Test
+	public void newEntitiesReplaceCachedMisses() {
+		assertThrows(UserNotFoundException.class, () -> userService.getUser(3));
+		userService.addUsers(List.of(new User("3@yandex.ru", "user3", "third", LocalDate.of(1996, 6, 20))));
+
+		assertThat(userService.getUser(3).getName()).isEqualTo("third");
+		userService.updateUser(new User(3, "3@yandex.ru", "user3", "renamed", LocalDate.of(1996, 6, 20)));
+		assertThat(userService.getUser(3).getName()).isEqualTo("renamed");
+		assertThat(jdbcTemplate.queryForObject("SELECT name FROM users WHERE id = 3", String.class))
+				.isEqualTo("renamed");
+	}
+
+	private int countQueries(Runnable action) {
+		queryCounter.reset();
+		action.run();
+		return queryCounter.get();
+	}
+}
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.repository.FilmLoader;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@Import(QueryCounter.Config.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class FilmExportTests {
+	private final JdbcTemplate jdbcTemplate;
+	private final QueryCounter queryCounter;
+	private final FilmService filmService;
+	private final ObjectMapper objectMapper;
+	private final MockMvc mockMvc;
+
+	@Test
+	public void exportWritesOneJsonLinePerFilm() throws Exception {
+		addFilms(2500);
+		MvcResult result = mockMvc.perform(get("/films/export"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String body = mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		String[] lines = body.split("\n");
+
+		assertThat(lines).hasSize(2500).allMatch(line -> line.startsWith("{") && line.endsWith("}"));
+		Film first = objectMapper.readValue(lines[0], Film.class);
+		Film last = objectMapper.readValue(lines[2499], Film.class);
+		assertThat(first.getId()).isEqualTo(1);
+		assertThat(first.getGenres()).hasSize(1);
+		assertThat(first.getMpa().getName()).isNotNull();
+		assertThat(last.getId()).isEqualTo(2500);
+	}
+
+	@Test
+	public void exportStreamsKeysetChunks() {
+		addFilms(2500);
+		queryCounter.reset();
+		List<Integer> chunksLoadedPerFilm = new ArrayList<>();
+		filmService.exportFilms(film -> chunksLoadedPerFilm.add(filmChunks().size()));
+		List<String> chunks = filmChunks();
+
+		// каждая порция выбирается по ключу после предыдущей, а не списком всего каталога
+		assertThat(chunks).hasSize(3).allMatch(sql -> sql.contains("f.id >") && sql.contains("LIMIT"));
+		assertThat(queryCounter.getStatements()).noneMatch(sql -> sql.startsWith(FilmLoader.SELECT_FILMS)
+				&& !sql.contains("LIMIT"));
+		// следующая порция читается только после того, как предыдущая отдана потребителю: в памяти одновременно
+		// не больше CHUNK_SIZE фильмов при любом размере каталога; сам объем памяти тест не измеряет
+		assertThat(chunksLoadedPerFilm).hasSize(2500);
+		for (int i = 0; i < chunksLoadedPerFilm.size(); i++) {
+			assertThat(chunksLoadedPerFilm.get(i)).isEqualTo(i / FilmLoader.CHUNK_SIZE + 1);
+		}
+	}
+
+	private List<String> filmChunks() {
+		return queryCounter.getStatements().stream()
+				.filter(sql -> sql.startsWith(FilmLoader.SELECT_FILMS))
+				.collect(Collectors.toList());
+	}
+
+	private void addFilms(int count) {
+		TestData.addFilms(jdbcTemplate, count);
+		jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) SELECT id, MOD(id, 6) + 1 FROM films");
+	}
+}
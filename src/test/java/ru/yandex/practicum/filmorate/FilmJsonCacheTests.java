@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.cache.FilmJsonCache;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "filmorate.films.json-cache.enabled=true")
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class FilmJsonCacheTests {
+	private final FilmService filmService;
+	private final UserService userService;
+	private final ObjectMapper objectMapper;
+	private final MeterRegistry registry;
+	private final MockMvc mockMvc;
+
+	@BeforeEach
+	public void init() {
+		userService.addUser(new User("1@yandex.ru", "user1", "first", LocalDate.of(1992, 3, 4)));
+		for (int i = 1; i <= 3; i++) {
+			filmService.addFilm(new Film("film" + i, "description " + i, LocalDate.of(2000, 1, i), 100 + i,
+					new TreeSet<>(Set.of(new Genre(i, null), new Genre(i + 1, null))), new Mpa(i, null)));
+		}
+	}
+
+	@Test
+	public void responsesMatchJackson() throws Exception {
+		for (int i = 0; i < 2; i++) {
+			assertThat(body("/films")).isEqualTo(objectMapper.writeValueAsString(filmService.getAllFilms()));
+			assertThat(body("/films/2")).isEqualTo(objectMapper.writeValueAsString(filmService.getFilm(2)));
+			assertThat(body("/films/popular?count=2"))
+					.isEqualTo(objectMapper.writeValueAsString(filmService.getTopLikes(2)));
+			assertThat(body("/films?after=1&limit=1"))
+					.isEqualTo(objectMapper.writeValueAsString(filmService.getFilmsPage(1, 1).getItems()));
+		}
+
+		assertThat(registry.get("cache.gets").tag("cache", "film-json").tag("result", "hit").functionCounter().count())
+				.isGreaterThan(0);
+		mockMvc.perform(get("/films/99"))
+				.andExpect(status().isNotFound())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+	}
+
+	@Test
+	public void likesAndUpdatesReplaceFragments() throws Exception {
+		body("/films/popular?count=3");
+		mockMvc.perform(put("/films/3/like/1")).andExpect(status().isOk());
+
+		mockMvc.perform(get("/films/popular?count=3"))
+				.andExpect(jsonPath("$[0].id").value(3))
+				.andExpect(jsonPath("$[0].rate").value(1));
+
+		filmService.updateFilm(new Film(3, "film3", "updated", LocalDate.of(2000, 1, 3), 103,
+				new TreeSet<>(Set.of(new Genre(6, null))), new Mpa(3, null)));
+		assertThat(filmService.getFilm(3).getVersion()).isEqualTo(1);
+		mockMvc.perform(get("/films/3"))
+				.andExpect(jsonPath("$.description").value("updated"))
+				.andExpect(jsonPath("$.rate").value(1))
+				.andExpect(jsonPath("$.genres[0].id").value(6))
+				.andExpect(jsonPath("$.version").doesNotExist());
+	}
+
+	@Test
+	public void fragmentReusedWhileVersionAndRateMatch() {
+		FilmJsonCache cache = new FilmJsonCache(objectMapper, 1 << 20, new SimpleMeterRegistry());
+		Film film = filmService.getFilm(1);
+		byte[] json = cache.toJson(film);
+
+		// содержимое фильма не сравнивается: без новой версии фрагмент остается прежним
+		film.setDescription("changed");
+		assertThat(cache.toJson(film)).isSameAs(json);
+		film.setVersion(film.getVersion() + 1);
+		assertThat(new String(cache.toJson(film), StandardCharsets.UTF_8)).contains("changed");
+		film.setRate(film.getRate() + 1);
+		assertThat(new String(cache.toJson(film), StandardCharsets.UTF_8)).contains("\"rate\":1");
+	}
+
+	private String body(String url) throws Exception {
+		return mockMvc.perform(get(url))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+	}
+}
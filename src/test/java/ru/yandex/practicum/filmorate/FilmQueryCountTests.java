@@ -0,0 +1,181 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.dao.LikesDao;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.repository.FilmDbStorage;
+import ru.yandex.practicum.filmorate.repository.UserDbStorage;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Import(QueryCounter.Config.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class FilmQueryCountTests {
+	private final JdbcTemplate jdbcTemplate;
+	private final FilmDbStorage filmStorage;
+	private final UserDbStorage userStorage;
+	private final LikesDao likesDao;
+	private final FilmService filmService;
+	private final UserService userService;
+	private final QueryCounter queryCounter;
+
+	@BeforeEach
+	public void init() {
+		jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) VALUES " +
+				"('1@yandex.ru', 'user1', 'first', '1992-03-04'), " +
+				"('2@yandex.ru', 'user2', 'second', '1994-10-14'), " +
+				"('3@yandex.ru', 'user3', 'third', '1996-06-20')");
+	}
+
+	@Test
+	public void getAllQueryCountDoesNotDependOnFilmsCount() {
+		addFilms(10);
+		int smallCatalogQueries = countQueries(() -> assertThat(filmStorage.getAll()).hasSize(10));
+		addFilms(490);
+		int largeCatalogQueries = countQueries(() -> assertThat(filmStorage.getAll()).hasSize(500));
+
+		assertThat(largeCatalogQueries).isEqualTo(smallCatalogQueries);
+		assertThat(largeCatalogQueries).isLessThanOrEqualTo(3);
+	}
+
+	@Test
+	public void getTopQueryCountDoesNotDependOnCount() {
+		addFilms(500);
+		int smallTopQueries = countQueries(() -> assertThat(likesDao.getTop(10)).hasSize(10));
+		int largeTopQueries = countQueries(() -> assertThat(likesDao.getTop(500)).hasSize(500));
+
+		assertThat(largeTopQueries).isEqualTo(smallTopQueries);
+		assertThat(largeTopQueries).isLessThanOrEqualTo(3);
+	}
+
+	@Test
+	public void getByIdHydratesFilmInConstantQueries() {
+		addFilms(10);
+		int queries = countQueries(() -> {
+			Film film = filmStorage.getById(5);
+			assertThat(film.getGenres()).hasSize(2);
+			assertThat(film.getRate()).isEqualTo(2);
+			assertThat(film.getMpa().getName()).isNotNull();
+		});
+
+		assertThat(queries).isLessThanOrEqualTo(3);
+	}
+
+	@Test
+	public void updateFilmTakesAtMostThreeStatements() {
+		addFilms(10);
+		Film film = filmStorage.getById(5);
+		film.setName("updated");
+		film.setGenres(new TreeSet<>(Set.of(new Genre(2, null), new Genre(3, null), new Genre(4, null))));
+		int queries = countQueries(() -> {
+			Film updated = filmService.updateFilm(film);
+			assertThat(updated.getRate()).isEqualTo(2);
+			assertThat(updated.getGenres()).extracting(Genre::getName).doesNotContainNull();
+		});
+
+		assertThat(queries).isLessThanOrEqualTo(3);
+		assertThat(filmStorage.getById(5).getGenres()).extracting(Genre::getId).containsExactly(2, 3, 4);
+	}
+
+	@Test
+	public void likeMutationsUseCheapExistenceChecks() {
+		addFilms(10);
+		filmStorage.exists(5);
+		userStorage.exists(1);
+		int deleteLikeQueries = countQueries(() -> filmService.deleteLike(5, 1));
+		int likeQueries = countQueries(() -> filmService.like(5, 1));
+
+		assertThat(deleteLikeQueries).isLessThanOrEqualTo(3);
+		assertThat(likeQueries).isLessThanOrEqualTo(2);
+		assertThat(filmStorage.getById(5).getRate()).isEqualTo(2);
+	}
+
+	@Test
+	public void likesBatchQueryCountDoesNotDependOnSize() {
+		addFilms(200);
+		List<Integer> filmIds = jdbcTemplate.queryForList("SELECT id FROM films", Integer.class);
+		int filmCheckQueries = countQueries(() -> assertThat(filmStorage.getExistingIds(filmIds)).hasSize(200));
+		int userCheckQueries = countQueries(() -> assertThat(userStorage.getExistingIds(List.of(2, 3))).hasSize(2));
+		int smallBatchQueries = countQueries(() -> filmService.applyLikes(likeOperations(1, 10)));
+		int largeBatchQueries = countQueries(() -> filmService.applyLikes(likeOperations(11, 200)));
+
+		assertThat(filmCheckQueries).isEqualTo(1);
+		assertThat(userCheckQueries).isEqualTo(1);
+		assertThat(largeBatchQueries).isEqualTo(smallBatchQueries);
+		assertThat(largeBatchQueries).isLessThanOrEqualTo(3);
+		assertThat(filmStorage.getById(1).getRate()).isEqualTo(1);
+		assertThat(filmStorage.getById(2).getRate()).isEqualTo(3);
+	}
+
+	@Test
+	public void multiGetQueryCountDoesNotDependOnSize() {
+		addFilms(100);
+		int smallQueries = countQueries(() -> assertThat(filmService.getFilms(ids(1, 5, 999)).getItems()).hasSize(5));
+		int largeQueries = countQueries(() -> assertThat(filmService.getFilms(ids(6, 55, 998)).getItems()).hasSize(50));
+		int usersQueries = countQueries(() -> assertThat(userService.getUsers(List.of(3, 1, 9)).getItems()).hasSize(2));
+
+		assertThat(largeQueries).isEqualTo(smallQueries);
+		assertThat(largeQueries).isLessThanOrEqualTo(2);
+		assertThat(usersQueries).isEqualTo(1);
+	}
+
+	private List<Integer> ids(int from, int to, int missingId) {
+		List<Integer> ids = new ArrayList<>();
+		for (int id = to; id >= from; id--) {
+			ids.add(id);
+		}
+		ids.add(missingId);
+		return ids;
+	}
+
+	private List<LikeOperation> likeOperations(int fromFilm, int toFilm) {
+		List<LikeOperation> operations = new ArrayList<>();
+		for (int filmId = fromFilm; filmId <= toFilm; filmId++) {
+			// нечетные фильмы теряют лайк пользователя 2, четные получают лайк нового пользователя 3
+			operations.add(filmId % 2 == 1
+					? new LikeOperation(filmId, 2, LikeOperation.Action.UNLIKE)
+					: new LikeOperation(filmId, 3, LikeOperation.Action.LIKE));
+		}
+		return operations;
+	}
+
+	private void addFilms(int count) {
+		for (int i = 0; i < count; i++) {
+			jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, mpa_id) " +
+					"VALUES ('film', 'test film', '2000-01-01', 100, ?)", i % 5 + 1);
+		}
+		jdbcTemplate.update("DELETE FROM film_genre");
+		jdbcTemplate.update("DELETE FROM likes");
+		jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) SELECT id, 1 FROM films");
+		jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) SELECT id, 2 FROM films");
+		jdbcTemplate.update("INSERT INTO likes (film_id, user_id) SELECT id, 1 FROM films");
+		jdbcTemplate.update("INSERT INTO likes (film_id, user_id) SELECT id, 2 FROM films");
+		jdbcTemplate.update("UPDATE films SET like_count = 2");
+	}
+
+	private int countQueries(Runnable action) {
+		queryCounter.reset();
+		action.run();
+		return queryCounter.get();
+	}
+}
@@ -5,32 +5,56 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.dao.FriendsDao;
 import ru.yandex.practicum.filmorate.dao.GenreDao;
 import ru.yandex.practicum.filmorate.dao.LikesDao;
 import ru.yandex.practicum.filmorate.dao.MpaDao;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.GenreNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Lookup;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.repository.FilmDbStorage;
 import ru.yandex.practicum.filmorate.repository.UserDbStorage;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 @AutoConfigureTestDatabase
+@AutoConfigureMockMvc
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 class FilmorateApplicationTests {
 	private final JdbcTemplate jdbcTemplate;
 	private final FilmDbStorage filmStorage;
@@ -39,6 +63,13 @@ class FilmorateApplicationTests {
 	private final MpaDao mpaDao;
 	private final LikesDao likesDao;
 	private final FriendsDao friendsDao;
+	private final PopularityIndex popularityIndex;
+	private final LikesMatrix likesMatrix;
+	private final FriendGraph friendGraph;
+	private final ReferenceDataCache referenceData;
+	private final FilmService filmService;
+	private final UserService userService;
+	private final MockMvc mockMvc;
 	private static final Genre GENRE_COMEDY = new Genre(1, "Комедия");
 	private static final Genre GENRE_DRAMA = new Genre(2, "Драма");
 	private static final Genre GENRE_CARTOON = new Genre(3, "Мультфильм");
@@ -73,6 +104,9 @@ class FilmorateApplicationTests {
 		jdbcTemplate.update(sqlAddGenres);
 		jdbcTemplate.update(sqlAddLikes);
 		jdbcTemplate.update(sqlAddFriends);
+		updateLikeCount();
+		friendGraph.reload();
+		likesMatrix.reload();
 	}
 
 	@Test
@@ -101,6 +135,36 @@ class FilmorateApplicationTests {
 		assertThat(films).hasSize(0);
 	}
 
+	@Test
+	public void getFilmsPage() {
+		List<Film> films = filmStorage.getPage(1, 1);
+
+		assertThat(films).hasSize(1);
+		assertThat(films.get(0)).isEqualTo(new Film(2, "film2", "second test film",
+				LocalDate.of(2005, 12, 4), 120, 2,
+				Set.of(GENRE_THRILLER), MPA_G));
+		assertThat(filmStorage.getPage(3, 10)).hasSize(0);
+	}
+
+	@Test
+	public void getFilmsPageWithCursor() {
+		Page<Film> firstPage = filmService.getFilmsPage(null, 2);
+		Page<Film> lastPage = filmService.getFilmsPage(firstPage.getNextCursor(), 2);
+
+		assertThat(firstPage.getItems()).extracting(Film::getId).containsExactly(1, 2);
+		assertThat(firstPage.getNextCursor()).isEqualTo(2);
+		assertThat(lastPage.getItems()).extracting(Film::getId).containsExactly(3);
+		assertThat(lastPage.getNextCursor()).isNull();
+	}
+
+	@Test
+	public void getFilmsPageWithIncorrectLimit() {
+		assertThatThrownBy(() -> filmService.getFilmsPage(0, 0))
+				.hasMessage("Параметр limit должен быть положительным.");
+		assertThatThrownBy(() -> filmService.getFilmsPage(-1, 10))
+				.hasMessage("Параметр after не может быть отрицательным.");
+	}
+
 	@Test
 	public void getFilmById() {
 		Film film = filmStorage.getById(1);
@@ -114,6 +178,29 @@ class FilmorateApplicationTests {
 		assertThatThrownBy(() -> filmStorage.getById(999)).hasMessage("Фильм с id=999 не найден.");
 	}
 
+	@Test
+	public void getFilmsByIds() {
+		Lookup<Film> films = filmService.getFilms(List.of(3, 999, 1, 3, 998));
+
+		assertThat(films.getItems()).extracting(Film::getId).containsExactly(3, 1);
+		assertThat(films.getItems().get(0).getGenres()).containsExactly(GENRE_DRAMA, GENRE_THRILLER, GENRE_ACTION);
+		assertThat(films.getItems().get(0).getRate()).isEqualTo(3);
+		assertThat(films.getMissingIds()).containsExactly(999, 998);
+	}
+
+	@Test
+	public void getFilmsByIncorrectIds() {
+		List<Integer> ids = new ArrayList<>();
+		for (int i = 1; i <= 101; i++) {
+			ids.add(i);
+		}
+
+		assertThatThrownBy(() -> filmService.getFilms(ids))
+				.hasMessage("Параметр ids должен содержать от 1 до 100 значений.");
+		assertThatThrownBy(() -> filmService.getFilms(List.of()))
+				.hasMessage("Параметр ids должен содержать от 1 до 100 значений.");
+	}
+
 	@Test
 	public void addFilm() {
 		Film film = new Film("film4", "fourth test film",
@@ -199,6 +286,40 @@ class FilmorateApplicationTests {
 		assertThat(filmFromDb.getGenres()).contains(GENRE_COMEDY, GENRE_CARTOON);
 	}
 
+	@Test
+	public void updateFilmWithoutGenres() {
+		Film updatedFilm = new Film(3, "updatedFilm3", "third test film",
+				LocalDate.of(2008, 10, 1), 180, new TreeSet<>(), MPA_R);
+		Film filmReturned = filmService.updateFilm(updatedFilm);
+		Film filmFromDb = filmStorage.getById(3);
+
+		assertThat(filmReturned.getRate()).isEqualTo(3);
+		assertThat(filmReturned.getGenres()).isEmpty();
+		assertThat(filmFromDb).isEqualTo(filmReturned);
+	}
+
+	@Test
+	public void updateUnknownFilm() {
+		Film updatedFilm = new Film(9999, "updatedFilm", "unknown film",
+				LocalDate.of(1990, 9, 10), 150, Set.of(GENRE_COMEDY), MPA_PG_13);
+
+		assertThatThrownBy(() -> filmService.updateFilm(updatedFilm))
+				.isInstanceOf(FilmNotFoundException.class)
+				.hasMessage("Фильм с id=9999 не найден.");
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_genre WHERE film_id = 9999",
+				Integer.class)).isZero();
+	}
+
+	@Test
+	public void updateFilmWithUnknownGenre() {
+		Film updatedFilm = new Film(1, "updatedFilm1", "first test film updated",
+				LocalDate.of(1990, 9, 10), 150, Set.of(GENRE_COMEDY, new Genre(99, null)), MPA_PG_13);
+
+		assertThatThrownBy(() -> filmService.updateFilm(updatedFilm))
+				.isInstanceOf(GenreNotFoundException.class);
+		assertThat(filmStorage.getById(1).getName()).isEqualTo("film1");
+	}
+
 	@Test
 	public void getAllUsers() {
 		List<User> users = userStorage.getAll();
@@ -222,6 +343,26 @@ class FilmorateApplicationTests {
 		assertThat(users).hasSize(0);
 	}
 
+	@Test
+	public void getUsersPage() {
+		List<User> users = userStorage.getPage(2, 5);
+
+		assertThat(users).hasSize(1);
+		assertThat(users.get(0)).isEqualTo(new User(3, "3@yandex.ru", "user3", "third",
+				LocalDate.of(1996, 6, 20)));
+	}
+
+	@Test
+	public void getUsersPageWithCursor() {
+		Page<User> firstPage = userService.getUsersPage(null, 1);
+		Page<User> secondPage = userService.getUsersPage(firstPage.getNextCursor(), 5);
+
+		assertThat(firstPage.getItems()).extracting(User::getId).containsExactly(1);
+		assertThat(firstPage.getNextCursor()).isEqualTo(1);
+		assertThat(secondPage.getItems()).extracting(User::getId).containsExactly(2, 3);
+		assertThat(secondPage.getNextCursor()).isNull();
+	}
+
 	@Test
 	public void getUserById() {
 		User user = userStorage.getById(1);
@@ -235,6 +376,14 @@ class FilmorateApplicationTests {
 		assertThatThrownBy(() -> userStorage.getById(999)).hasMessage("Пользователь с id=999 не найден.");
 	}
 
+	@Test
+	public void getUsersByIds() {
+		Lookup<User> users = userService.getUsers(List.of(2, 4, 1));
+
+		assertThat(users.getItems()).extracting(User::getLogin).containsExactly("user2", "user1");
+		assertThat(users.getMissingIds()).containsExactly(4);
+	}
+
 	@Test
 	public void addUser() {
 		User user = new User("4@yandex.ru", "user4", "fourth",
@@ -360,6 +509,33 @@ class FilmorateApplicationTests {
 		assertThatThrownBy(() -> mpaDao.getById(999)).hasMessage("Рейтинг с id=999 не найден.");
 	}
 
+	@Test
+	public void referenceDataSharedBetweenFilms() {
+		List<Film> films = filmStorage.getAll();
+
+		assertThat(films.get(1).getGenres().iterator().next()).isSameAs(referenceData.getGenre(4));
+		assertThat(films.get(2).getGenres()).contains(GENRE_THRILLER);
+		assertThat(films.get(2).getMpa()).isSameAs(referenceData.getMpa(4));
+		assertThat(referenceData.getAllGenres()).containsExactlyElementsOf(genreDao.getAll());
+		assertThat(referenceData.getAllMpa()).containsExactlyElementsOf(mpaDao.getAll());
+	}
+
+	@Test
+	public void referenceDataRefresh() {
+		jdbcTemplate.update("INSERT INTO genres (genre_name) VALUES ('Ужасы')");
+
+		assertThatThrownBy(() -> referenceData.getGenre(7)).hasMessage("Жанр с id=7 не найден.");
+		referenceData.refresh();
+		assertThat(referenceData.getGenre(7)).isEqualTo(new Genre(7, "Ужасы"));
+		assertThat(referenceData.getAllGenres()).hasSize(7);
+	}
+
+	@Test
+	public void referenceDataByNonExistentId() {
+		assertThatThrownBy(() -> referenceData.getGenre(999)).hasMessage("Жанр с id=999 не найден.");
+		assertThatThrownBy(() -> referenceData.getMpa(0)).hasMessage("Рейтинг с id=0 не найден.");
+	}
+
 	@Test
 	public void getAllLikesByFilmId() {
 		List<Integer> likes = likesDao.getAllByFilmId(2);
@@ -387,6 +563,18 @@ class FilmorateApplicationTests {
 		assertThat(likes).contains(3);
 	}
 
+	@Test
+	public void addLikeTwice() {
+		boolean first = likesDao.save(1, 3);
+		boolean second = likesDao.save(1, 3);
+		Film film = filmStorage.getById(1);
+
+		assertThat(first).isTrue();
+		assertThat(second).isFalse();
+		assertThat(film).hasFieldOrPropertyWithValue("rate", 2);
+		assertThat(likesDao.getAllByFilmId(1)).containsExactly(2, 3);
+	}
+
 	@Test
 	public void deleteLike() {
 		likesDao.delete(1, 2);
@@ -397,6 +585,39 @@ class FilmorateApplicationTests {
 		assertThat(likes).hasSize(0);
 	}
 
+	@Test
+	public void likeExists() {
+		assertThat(likesDao.exists(1, 2)).isTrue();
+		assertThat(likesDao.exists(1, 3)).isFalse();
+	}
+
+	@Test
+	public void likeUnknownFilm() {
+		assertThatThrownBy(() -> filmService.like(999, 1))
+				.isInstanceOf(FilmNotFoundException.class)
+				.hasMessage("Фильм с id=999 не найден.");
+		assertThatThrownBy(() -> filmService.like(1, 999))
+				.isInstanceOf(UserNotFoundException.class)
+				.hasMessage("Пользователь с id=999 не найден.");
+	}
+
+	@Test
+	public void deleteMissingLike() {
+		assertThatThrownBy(() -> filmService.deleteLike(1, 3))
+				.isInstanceOf(UserNotFoundException.class)
+				.hasMessage("Пользователь с id=3 не ставил лайк фильму с id=1.");
+		assertThat(filmStorage.getById(1).getRate()).isEqualTo(1);
+	}
+
+	@Test
+	public void filmAndUserExist() {
+		assertThat(filmStorage.exists(1)).isTrue();
+		assertThat(filmStorage.exists(999)).isFalse();
+		assertThat(userStorage.exists(3)).isTrue();
+		assertThat(userStorage.exists(999)).isFalse();
+		assertThat(userStorage.exists(0)).isFalse();
+	}
+
 	@Test
 	public void getTopLikesAllFilms() {
 		List<Film> topLikes = likesDao.getTop(10);
@@ -429,6 +650,7 @@ class FilmorateApplicationTests {
 	@Test
 	public void getTopLikesWhenSomeWithNoLikes() {
 		jdbcTemplate.update("DELETE FROM likes WHERE film_id IN (1, 2)");
+		updateLikeCount();
 		List<Film> topLikes = likesDao.getTop(10);
 
 		assertThat(topLikes).hasSize(3);
@@ -446,6 +668,7 @@ class FilmorateApplicationTests {
 	@Test
 	public void getTopLikesWhenAllWithNoLikes() {
 		jdbcTemplate.update("DELETE FROM likes");
+		updateLikeCount();
 		List<Film> topLikes = likesDao.getTop(10);
 
 		assertThat(topLikes).hasSize(3);
@@ -460,6 +683,60 @@ class FilmorateApplicationTests {
 				Set.of(GENRE_DRAMA, GENRE_THRILLER, GENRE_ACTION), MPA_R));
 	}
 
+	@Test
+	public void getTopLikesWithNonPositiveCount() throws Exception {
+		popularityIndex.reload();
+		mockMvc.perform(get("/films/popular?count=-1"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.message").value(startsWith("Неверно заполнено поле count")));
+		mockMvc.perform(get("/films/popular?count=0")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/films/popular?count=1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(1));
+	}
+
+	@Test
+	public void popularityIndexMatchesSqlTop() {
+		popularityIndex.reload();
+		likesDao.save(1, 1);
+		popularityIndex.increment(1);
+		likesDao.save(1, 3);
+		popularityIndex.increment(1);
+
+		assertThat(popularityIndex.getTop(10)).containsExactlyElementsOf(getTopIds(10));
+		assertThat(popularityIndex.getTop(2)).containsExactlyElementsOf(getTopIds(2));
+		assertThat(filmService.getTopLikes(10)).isEqualTo(likesDao.getTop(10));
+	}
+
+	@Test
+	public void popularityIndexMatchesSqlTopAfterConcurrentLikes() throws Exception {
+		TestData.addUsers(jdbcTemplate, 4, 23);
+		popularityIndex.reload();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int userId = 4; userId <= 23; userId++) {
+			int user = userId;
+			futures.add(executor.submit(() -> {
+				boolean[] liked = new boolean[4];
+				for (int i = 0; i < 50; i++) {
+					int filmId = ThreadLocalRandom.current().nextInt(1, 4);
+					if (liked[filmId]) {
+						filmService.deleteLike(filmId, user);
+					} else {
+						filmService.like(filmId, user);
+					}
+					liked[filmId] = !liked[filmId];
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		assertThat(popularityIndex.getTop(10)).containsExactlyElementsOf(getTopIds(10));
+	}
+
 	@Test
 	public void getAllFriendsById() {
 		List<User> friends = friendsDao.getAllById(1);
@@ -474,6 +751,7 @@ class FilmorateApplicationTests {
 	@Test
 	public void getAllFriendsByIdWhenEmpty() {
 		jdbcTemplate.update("DELETE FROM friends WHERE user_id = 1");
+		friendGraph.reload();
 		List<User> friends = friendsDao.getAllById(1);
 
 		assertThat(friends).hasSize(0);
@@ -491,6 +769,14 @@ class FilmorateApplicationTests {
 				LocalDate.of(1992, 3, 4)));
 	}
 
+	@Test
+	public void addFriendTwice() {
+		friendsDao.save(1, 2);
+		List<User> friends = friendsDao.getAllById(1);
+
+		assertThat(friends).hasSize(2);
+	}
+
 	@Test
 	public void deleteFriend() {
 		friendsDao.delete(1, 3);
@@ -520,8 +806,20 @@ class FilmorateApplicationTests {
 	@Test
 	public void getCommonByIdWhenEmpty() {
 		jdbcTemplate.update("DELETE FROM friends");
+		friendGraph.reload();
 		List<User> commonFriends = friendsDao.getCommonById(1, 2);
 
 		assertThat(commonFriends).hasSize(0);
 	}
+
+	private List<Integer> getTopIds(int count) {
+		return likesDao.getTop(count).stream()
+				.map(Film::getId)
+				.collect(Collectors.toList());
+	}
+
+	private void updateLikeCount() {
+		jdbcTemplate.update("UPDATE films AS f SET like_count = " +
+				"(SELECT COUNT(*) FROM likes AS l WHERE l.film_id = f.id)");
+	}
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"filmorate.jfr.admin.enabled=true", "filmorate.jfr.directory=target/jfr",
+		"filmorate.jfr.max-files=2"})
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class FlightRecorderTests {
+	private final FilmService filmService;
+	private final UserService userService;
+	private final ObjectMapper objectMapper;
+	private final MockMvc mockMvc;
+
+	@BeforeEach
+	public void init() {
+		userService.addUser(new User("1@yandex.ru", "user1", "first", LocalDate.of(1992, 3, 4)));
+		filmService.addFilm(new Film("film", "description", LocalDate.of(2000, 1, 1), 100,
+				new TreeSet<>(Set.of(new Genre(1, null))), new Mpa(1, null)));
+	}
+
+	@Test
+	public void recordingCapturesRequestRepositoryAndCacheEvents() throws Exception {
+		JsonNode started = perform("/admin/jfr/start");
+		assertThat(started.get("running").asBoolean()).isTrue();
+		assertThat(started.get("settings").asText()).isEqualTo("default");
+		mockMvc.perform(get("/films")).andExpect(status().isOk());
+		mockMvc.perform(get("/users/1")).andExpect(status().isOk());
+		mockMvc.perform(get("/films/99")).andExpect(status().isNotFound());
+		JsonNode stopped = perform("/admin/jfr/stop");
+
+		assertThat(stopped.get("running").asBoolean()).isFalse();
+		Path file = Path.of(stopped.get("file").asText());
+		assertThat(file).exists();
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+		List<RecordedEvent> requests = events(events, "filmorate.Request");
+		assertThat(requests).extracting(event -> event.getString("route"))
+				.contains("/films", "/users/{id}", "/films/{id}");
+		assertThat(requests).filteredOn(event -> event.getString("route").equals("/films/{id}"))
+				.extracting(event -> event.getInt("status")).containsExactly(404);
+		RecordedEvent getAll = events(events, "filmorate.Repository").stream()
+				.filter(event -> event.getString("repository").equals("FilmDbStorage")
+						&& event.getString("method").equals("getAll"))
+				.findFirst().orElseThrow();
+		assertThat(getAll.getString("sql")).containsIgnoringCase("FROM films");
+		assertThat(getAll.getLong("rows")).isPositive();
+		assertThat(getAll.getDuration()).isPositive();
+		assertThat(events(events, "filmorate.Cache")).extracting(event -> event.getString("cache"))
+				.contains("users", "films");
+		Files.delete(file);
+	}
+
+	@Test
+	public void dumpKeepsRecordingRunning() throws Exception {
+		perform("/admin/jfr/start?settings=profile");
+		mockMvc.perform(get("/films")).andExpect(status().isOk());
+		JsonNode dumped = perform("/admin/jfr/dump");
+		Path dump = Path.of(dumped.get("file").asText());
+
+		assertThat(dumped.get("running").asBoolean()).isTrue();
+		assertThat(dumped.get("settings").asText()).isEqualTo("profile");
+		assertThat(events(RecordingFile.readAllEvents(dump), "filmorate.Request")).isNotEmpty();
+		Path stopped = Path.of(perform("/admin/jfr/stop").get("file").asText());
+		assertThat(stopped).isNotEqualTo(dump);
+		Files.delete(dump);
+		Files.delete(stopped);
+	}
+
+	@Test
+	public void oldDumpsDeleted() throws Exception {
+		perform("/admin/jfr/start");
+		Path first = Path.of(perform("/admin/jfr/dump").get("file").asText());
+		Path second = Path.of(perform("/admin/jfr/dump").get("file").asText());
+		Path stopped = Path.of(perform("/admin/jfr/stop").get("file").asText());
+
+		assertThat(first).doesNotExist();
+		assertThat(second).exists();
+		assertThat(stopped).exists();
+		Files.delete(second);
+		Files.delete(stopped);
+	}
+
+	@Test
+	public void recordingStateChecked() throws Exception {
+		mockMvc.perform(post("/admin/jfr/stop")).andExpect(status().isBadRequest());
+		mockMvc.perform(post("/admin/jfr/dump")).andExpect(status().isBadRequest());
+		mockMvc.perform(post("/admin/jfr/start?settings=unknown")).andExpect(status().isBadRequest());
+		mockMvc.perform(post("/admin/jfr/start?settings=/etc/passwd")).andExpect(status().isBadRequest());
+		perform("/admin/jfr/start");
+		mockMvc.perform(post("/admin/jfr/start")).andExpect(status().isBadRequest());
+		JsonNode status = objectMapper.readTree(mockMvc.perform(get("/admin/jfr"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8));
+		assertThat(status.get("running").asBoolean()).isTrue();
+		Files.delete(Path.of(perform("/admin/jfr/stop").get("file").asText()));
+	}
+
+	private JsonNode perform(String uri) throws Exception {
+		String body = mockMvc.perform(post(uri))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+		return objectMapper.readTree(body);
+	}
+
+	private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+		return events.stream()
+				.filter(event -> event.getEventType().getName().equals(name))
+				.collect(Collectors.toList());
+	}
+}
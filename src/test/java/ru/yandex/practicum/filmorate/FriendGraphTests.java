@@ -0,0 +1,164 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dao.FriendsDao;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ru.yandex.practicum.filmorate.TestData.userIds;
+
+@SpringBootTest(properties = "filmorate.cache.entities.enabled=false")
+@AutoConfigureTestDatabase
+@Import(TestData.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class FriendGraphTests {
+	private static final int USERS_COUNT = 30_000;
+	private final JdbcTemplate jdbcTemplate;
+	private final FriendsDao friendsDao;
+	private final FriendGraph friendGraph;
+	private final UserService userService;
+	private final TransactionTemplate transactionTemplate;
+	private final TestData testData;
+
+	@BeforeEach
+	public void init() {
+		testData.reset();
+		TestData.addUsers(jdbcTemplate, USERS_COUNT);
+		testData.reloadIndexes();
+	}
+
+	@Test
+	public void commonFriendsOfPowerUsers() {
+		jdbcTemplate.update("INSERT INTO friends (user_id, friend_id) SELECT 1, x FROM SYSTEM_RANGE(2, ?)",
+				USERS_COUNT);
+		jdbcTemplate.update("INSERT INTO friends (user_id, friend_id) " +
+				"SELECT 2, x FROM SYSTEM_RANGE(3, ?) WHERE MOD(x, 3) = 0", USERS_COUNT);
+		jdbcTemplate.update("INSERT INTO friends (user_id, friend_id) VALUES (3, 9), (3, 10), (3, 29997)");
+		friendGraph.reload();
+
+		assertThat(userIds(friendsDao.getCommonById(1, 2))).isEqualTo(commonFromSql(1, 2));
+		assertThat(userIds(friendsDao.getCommonById(2, 1))).isEqualTo(commonFromSql(1, 2));
+		assertThat(userIds(friendsDao.getCommonById(1, 3))).containsExactly(9, 10, 29997);
+		assertThat(userIds(friendsDao.getCommonById(2, 3))).containsExactly(9, 29997);
+		assertThat(friendsDao.getCommonById(3, 4)).isEmpty();
+	}
+
+	@Test
+	public void rolledBackFriendChangesDoNotReachGraph() {
+		friendsDao.save(1, 2);
+		transactionTemplate.executeWithoutResult(status -> {
+			friendsDao.save(1, 3);
+			friendsDao.delete(1, 2);
+			status.setRollbackOnly();
+		});
+
+		assertThat(friendGraph.getFriends(1)).containsExactly(2);
+		assertThat(userIds(friendsDao.getAllById(1))).containsExactly(2);
+	}
+
+	@Test
+	public void graphFollowsFriendChanges() {
+		userService.addFriend(1, 5);
+		userService.addFriend(1, 3);
+		userService.addFriend(2, 3);
+		userService.addFriend(2, 5);
+		userService.addFriend(2, 7);
+
+		assertThat(userIds(userService.getCommonFriends(1, 2))).containsExactly(3, 5);
+
+		userService.deleteFriend(2, 3);
+
+		assertThat(userIds(userService.getCommonFriends(1, 2))).containsExactly(5);
+		assertThat(friendGraph.getFriends(2)).containsExactly(5, 7);
+	}
+
+	@Test
+	public void graphMatchesDatabaseAfterConcurrentChanges() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int thread = 0; thread < 8; thread++) {
+			futures.add(executor.submit(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i = 0; i < 500; i++) {
+					int userId = random.nextInt(1, 5);
+					int friendId = random.nextInt(5, 40);
+					if (random.nextBoolean()) {
+						friendsDao.save(userId, friendId);
+					} else {
+						friendsDao.delete(userId, friendId);
+					}
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		for (int userId = 1; userId < 5; userId++) {
+			List<Integer> fromDb = jdbcTemplate.queryForList(
+					"SELECT friend_id FROM friends WHERE user_id = ? ORDER BY friend_id", Integer.class, userId);
+			assertThat(Arrays.stream(friendGraph.getFriends(userId)).boxed().collect(Collectors.toList()))
+					.isEqualTo(fromDb);
+		}
+	}
+
+	@Test
+	public void suggestionsRankedByMutualFriends() {
+		addSuggestionGraph();
+
+		assertThat(userIds(userService.getFriendSuggestions(1, 3))).containsExactly(5, 6, 7);
+		assertThat(userIds(userService.getFriendSuggestions(1, 10))).containsExactly(5, 6, 7, 8);
+		assertThat(userService.getFriendSuggestions(9, 10)).isEmpty();
+	}
+
+	@Test
+	public void suggestionsStopWhenBudgetIsSpent() {
+		addSuggestionGraph();
+
+		assertThat(friendGraph.suggest(1, 10, 3)).containsExactly(5, 6, 7);
+		assertThat(friendGraph.suggest(1, 2, 3)).containsExactly(5, 6);
+		assertThat(friendGraph.suggest(1, 10, 0)).isEmpty();
+	}
+
+	@Test
+	public void suggestionsWithIncorrectParameters() {
+		assertThatThrownBy(() -> userService.getFriendSuggestions(USERS_COUNT + 1, 10))
+				.isInstanceOf(UserNotFoundException.class);
+		assertThatThrownBy(() -> userService.getFriendSuggestions(1, 0))
+				.isInstanceOf(IncorrectParameterException.class);
+	}
+
+	private void addSuggestionGraph() {
+		jdbcTemplate.update("INSERT INTO friends (user_id, friend_id) VALUES " +
+				"(1, 2), (1, 3), (1, 4), (2, 5), (2, 6), (2, 7), (3, 5), (3, 6), (3, 1), (4, 5), (4, 8)");
+		friendGraph.reload();
+	}
+
+	private List<Integer> commonFromSql(int userId, int otherId) {
+		return jdbcTemplate.queryForList("SELECT f.friend_id FROM friends AS f, friends AS o " +
+				"WHERE f.friend_id = o.friend_id AND f.user_id = ? AND o.user_id = ? ORDER BY f.friend_id",
+				Integer.class, userId, otherId);
+	}
+}
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+@Tag("benchmark")
+class FriendSuggestionsBenchmarkTests {
+	private static final int USERS_COUNT = 100_000;
+	// степень пользователя с id=u примерно MAX_DEGREE / u^0.8, всего около миллиона связей
+	private static final int MAX_DEGREE = 24_000;
+	private static final int LIMIT = 10;
+	private static final int DEFAULT_BUDGET = 200_000;
+	private static final int SMALL_BUDGET = 20_000;
+	private static final int SAMPLES = 1_000;
+
+	@Test
+	public void suggestionsOnPowerLawGraph() {
+		JdbcTemplate jdbcTemplate = createDatabase();
+		int edges = addPowerLawGraph(jdbcTemplate);
+		FriendGraph friendGraph = new FriendGraph(jdbcTemplate);
+		friendGraph.reload();
+		log.info("Граф: {} пользователей, {} связей", USERS_COUNT, edges);
+
+		Random random = new Random(42);
+		int[] users = new int[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			// первые 20 выборок - самые крупные узлы, остальные - случайные пользователи
+			users[i] = i < 20 ? i + 1 : random.nextInt(USERS_COUNT) + 1;
+		}
+		measure("прогрев", friendGraph, users, Integer.MAX_VALUE);
+		long[] unbounded = measure("без ограничения", friendGraph, users, Integer.MAX_VALUE);
+		measure("бюджет " + DEFAULT_BUDGET, friendGraph, users, DEFAULT_BUDGET);
+		long[] bounded = measure("бюджет " + SMALL_BUDGET, friendGraph, users, SMALL_BUDGET);
+
+		assertThat(bounded[bounded.length - 1]).isLessThan(unbounded[unbounded.length - 1]);
+		for (int i = 0; i < SAMPLES; i++) {
+			assertThat(friendGraph.suggest(users[i], LIMIT, SMALL_BUDGET)).hasSizeLessThanOrEqualTo(LIMIT);
+		}
+	}
+
+	private long[] measure(String name, FriendGraph friendGraph, int[] users, int budget) {
+		long[] nanos = new long[users.length];
+		long found = 0;
+		for (int i = 0; i < users.length; i++) {
+			long start = System.nanoTime();
+			found += friendGraph.suggest(users[i], LIMIT, budget).length;
+			nanos[i] = System.nanoTime() - start;
+		}
+		long[] hubs = Arrays.copyOf(nanos, 20);
+		Arrays.sort(hubs);
+		Arrays.sort(nanos);
+		log.info("{}: p50 {} мкс, p99 {} мкс, максимум {} мкс, максимум для крупных узлов {} мкс, найдено {}",
+				name, nanos[nanos.length / 2] / 1000, nanos[nanos.length * 99 / 100] / 1000,
+				nanos[nanos.length - 1] / 1000, hubs[hubs.length - 1] / 1000, found);
+		return nanos;
+	}
+
+	private int addPowerLawGraph(JdbcTemplate jdbcTemplate) {
+		TestData.addUsers(jdbcTemplate, USERS_COUNT);
+		Random random = new Random(7);
+		int edges = 0;
+		List<Object[]> rows = new ArrayList<>();
+		for (int userId = 1; userId <= USERS_COUNT; userId++) {
+			int degree = Math.max(1, (int) (MAX_DEGREE / Math.pow(userId, 0.8)));
+			int[] friends = new int[degree];
+			for (int i = 0; i < degree; i++) {
+				// чаще всего в друзья попадают крупные узлы с малыми id
+				friends[i] = 1 + (int) (USERS_COUNT * Math.pow(random.nextDouble(), 3));
+			}
+			int[] distinct = Arrays.stream(friends).filter(id -> id != 0).sorted().distinct().toArray();
+			for (int friendId : distinct) {
+				if (friendId != userId) {
+					rows.add(new Object[]{userId, friendId});
+				}
+			}
+			if (rows.size() >= 10_000) {
+				edges += rows.size();
+				jdbcTemplate.batchUpdate("INSERT INTO friends (user_id, friend_id) VALUES (?, ?)", rows);
+				rows.clear();
+			}
+		}
+		edges += rows.size();
+		jdbcTemplate.batchUpdate("INSERT INTO friends (user_id, friend_id) VALUES (?, ?)", rows);
+		return edges;
+	}
+
+	private JdbcTemplate createDatabase() {
+		SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+				"jdbc:h2:mem:suggestions;DB_CLOSE_DELAY=-1", "sa", "password", true);
+		Flyway.configure()
+				.dataSource(dataSource)
+				.load()
+				.migrate();
+		return new JdbcTemplate(dataSource);
+	}
+}
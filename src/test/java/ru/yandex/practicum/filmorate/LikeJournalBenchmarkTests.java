@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.dao.LikesDao;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
+import ru.yandex.practicum.filmorate.journal.LikeJournal;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntBinaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(properties = {
+		"filmorate.likes.journal.enabled=true",
+		"filmorate.likes.journal.path=target/journal/${random.uuid}/likes.journal"
+})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LikeJournalBenchmarkTests {
+	private static final int FILMS = 1000;
+	private static final int USERS = 200;
+	private static final int THREADS = 16;
+	private static final int COUNT = 40_000;
+	private final JdbcTemplate jdbcTemplate;
+	private final LikesDao likesDao;
+	private final LikesMatrix likesMatrix;
+	private final LikeJournal likeJournal;
+
+	@Test
+	public void likesThroughput() throws Exception {
+		TestData.addFilms(jdbcTemplate, FILMS);
+		TestData.addUsers(jdbcTemplate, USERS);
+		likesMatrix.reload();
+
+		// первая половина пар лайкается напрямую в таблицу, вторая - через журнал
+		long directNanos = measure(0, (filmId, userId) -> likesDao.save(filmId, userId) ? 1 : 0);
+		long journalNanos = measure(COUNT, (filmId, userId) -> likeJournal.append(
+				List.of(new LikeOperation(filmId, userId, LikeOperation.Action.LIKE)))[0] ? 1 : 0);
+		long applyStart = System.nanoTime();
+		likeJournal.applyPending();
+		long applyNanos = System.nanoTime() - applyStart;
+		log.info("Лайки из {} потоков: напрямую {} в секунду, через журнал {} в секунду, перенос журнала {} мс",
+				THREADS, perSecond(directNanos), perSecond(journalNanos), applyNanos / 1_000_000);
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Integer.class)).isEqualTo(2 * COUNT);
+	}
+
+	private long measure(int offset, IntBinaryOperator like) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<Integer>> futures = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int thread = 0; thread < THREADS; thread++) {
+			int first = thread;
+			futures.add(executor.submit(() -> {
+				int changed = 0;
+				for (int i = offset + first; i < offset + COUNT; i += THREADS) {
+					changed += like.applyAsInt(i % FILMS + 1, i / FILMS + 1);
+				}
+				return changed;
+			}));
+		}
+		int changed = 0;
+		for (Future<Integer> future : futures) {
+			changed += future.get();
+		}
+		long nanos = System.nanoTime() - start;
+		executor.shutdown();
+		assertThat(changed).isEqualTo(COUNT);
+		return nanos;
+	}
+
+	private long perSecond(long nanos) {
+		return COUNT * 1_000_000_000L / nanos;
+	}
+}
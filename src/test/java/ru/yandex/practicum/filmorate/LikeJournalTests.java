@@ -0,0 +1,176 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.yandex.practicum.filmorate.dao.LikesDao;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.index.SimilarFilmsIndex;
+import ru.yandex.practicum.filmorate.journal.LikeJournal;
+import ru.yandex.practicum.filmorate.journal.PendingLikes;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.repository.FilmDbStorage;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+		"filmorate.likes.journal.enabled=true",
+		"filmorate.likes.journal.path=target/journal/${random.uuid}/likes.journal",
+		"filmorate.likes.journal.apply-interval-ms=3600000"
+})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LikeJournalTests {
+	private static final int LIKE_RECORD_SIZE = 13;
+	private final JdbcTemplate jdbcTemplate;
+	private final FilmService filmService;
+	private final LikeJournal likeJournal;
+	private final PendingLikes pendingLikes;
+	private final LikesDao likesDao;
+	private final LikesMatrix likesMatrix;
+	private final PopularityIndex popularityIndex;
+	private final SimilarFilmsIndex similarFilmsIndex;
+	private final FilmDbStorage filmStorage;
+
+	@Test
+	public void likeIsVisibleBeforeApply() {
+		addFilmsAndUsers();
+		filmService.like(2, 1);
+		filmService.deleteLike(1, 1);
+
+		assertThat(likes()).containsExactly("1-1", "3-3");
+		assertThat(pendingLikes.isLiked(2, 1)).isTrue();
+		assertThat(pendingLikes.isLiked(1, 1)).isFalse();
+		assertThat(filmService.getFilm(2).getRate()).isEqualTo(1);
+		assertThat(filmService.getFilm(1).getRate()).isZero();
+		assertThat(popularityIndex.getTop(3)).containsExactly(2, 3, 1);
+		assertThrows(UserNotFoundException.class, () -> filmService.deleteLike(1, 1));
+
+		likeJournal.applyPending();
+
+		assertThat(likes()).containsExactly("2-1", "3-3");
+		assertThat(pendingLikes.isEmpty()).isTrue();
+		assertThat(filmService.getFilm(2).getRate()).isEqualTo(1);
+		assertThat(filmService.getFilm(1).getRate()).isZero();
+	}
+
+	@Test
+	public void failedCommitLeavesNoPendingState() throws Exception {
+		addFilmsAndUsers();
+		// закрытый файл журнала - сбой записи при следующем групповом коммите
+		((FileChannel) ReflectionTestUtils.getField(likeJournal, "channel")).close();
+
+		assertThrows(UncheckedIOException.class, () -> filmService.like(2, 1));
+		assertThat(pendingLikes.isEmpty()).isTrue();
+		assertThat(pendingLikes.isLiked(2, 1)).isFalse();
+		assertThat(pendingLikes.adjust(2, 0)).isZero();
+		assertThat(filmService.getFilm(2).getRate()).isZero();
+		assertThat(likes()).containsExactly("1-1", "3-3");
+	}
+
+	@Test
+	public void replayAfterRestart() throws Exception {
+		addFilmsAndUsers();
+		Path path = Paths.get("target", "journal", UUID.randomUUID().toString(), "likes.journal");
+		LikeJournal journal = journal(path);
+		journal.start();
+		journal.append(List.of(
+				new LikeOperation(2, 1, LikeOperation.Action.LIKE),
+				new LikeOperation(3, 2, LikeOperation.Action.LIKE),
+				new LikeOperation(1, 1, LikeOperation.Action.UNLIKE)));
+		journal.shutdown();
+		// запись, оборванная на середине
+		Files.write(path, new byte[]{0, 0, 0, 2, 0}, StandardOpenOption.APPEND);
+		assertThat(likes()).containsExactly("1-1", "3-3");
+
+		LikeJournal restarted = journal(path);
+		restarted.start();
+		restarted.shutdown();
+
+		assertThat(likes()).containsExactly("2-1", "3-2", "3-3");
+		assertThat(jdbcTemplate.queryForList("SELECT like_count FROM films ORDER BY id", Integer.class))
+				.containsExactly(0, 1, 2);
+		assertThat(popularityIndex.getTop(3)).containsExactly(3, 2, 1);
+		assertThat(pendingLikes.isEmpty()).isTrue();
+		assertThat(Files.size(path)).isZero();
+	}
+
+	@Test
+	public void replayIgnoresStaleCheckpoint() throws Exception {
+		addFilmsAndUsers();
+		Path path = Paths.get("target", "journal", UUID.randomUUID().toString(), "likes.journal");
+		LikeJournal journal = journal(path);
+		journal.start();
+		journal.append(List.of(new LikeOperation(2, 1, LikeOperation.Action.LIKE)));
+		journal.applyPending();
+		journal.append(List.of(
+				new LikeOperation(2, 2, LikeOperation.Action.LIKE),
+				new LikeOperation(3, 1, LikeOperation.Action.LIKE),
+				new LikeOperation(1, 1, LikeOperation.Action.UNLIKE)));
+		journal.shutdown();
+		// контрольная точка от прежнего, более длинного журнала, пережившая сбой после его усечения
+		Files.write(path.resolveSibling("likes.journal.checkpoint"),
+				ByteBuffer.allocate(Long.BYTES).putLong(2L * LIKE_RECORD_SIZE).array());
+		assertThat(Files.size(path)).isEqualTo(3L * LIKE_RECORD_SIZE);
+		assertThat(likes()).containsExactly("1-1", "2-1", "3-3");
+
+		LikeJournal restarted = journal(path);
+		restarted.start();
+		restarted.shutdown();
+
+		assertThat(likes()).containsExactly("2-1", "2-2", "3-1", "3-3");
+		assertThat(pendingLikes.isEmpty()).isTrue();
+	}
+
+	@Test
+	public void appendAfterShutdownIsRejected() throws Exception {
+		addFilmsAndUsers();
+		LikeJournal journal = journal(Paths.get("target", "journal", UUID.randomUUID().toString(),
+				"likes.journal"));
+		journal.start();
+		journal.shutdown();
+
+		assertThrows(UncheckedIOException.class,
+				() -> journal.append(List.of(new LikeOperation(2, 1, LikeOperation.Action.LIKE))));
+		assertThat(pendingLikes.isEmpty()).isTrue();
+	}
+
+	private LikeJournal journal(Path path) {
+		return new LikeJournal(likesDao, pendingLikes, popularityIndex, similarFilmsIndex, filmStorage, true,
+				path.toString(), 1, 3_600_000, 5000);
+	}
+
+	private List<String> likes() {
+		return jdbcTemplate.queryForList("SELECT CONCAT(film_id, '-', user_id) FROM likes ORDER BY film_id, user_id",
+				String.class);
+	}
+
+	private void addFilmsAndUsers() {
+		TestData.addFilms(jdbcTemplate, 3);
+		TestData.addUsers(jdbcTemplate, 3);
+		jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (1, 1), (3, 3)");
+		jdbcTemplate.update("UPDATE films SET like_count = 1 WHERE id IN (1, 3)");
+		popularityIndex.reload();
+		likesMatrix.reload();
+	}
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// пул Hikari остается настоящим, чтобы проверить его метрики; база в памяти удаляется вместе с контекстом
+@SpringBootTest(properties = {"filmorate.cache.entities.enabled=false", "spring.datasource.url=jdbc:h2:mem:metrics"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+@Import(QueryCounter.Config.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class MetricsTests {
+	private final FilmService filmService;
+	private final UserService userService;
+	private final MeterRegistry registry;
+	private final QueryCounter queryCounter;
+	private final MockMvc mockMvc;
+
+	@BeforeEach
+	public void init() {
+		userService.addUser(new User("1@yandex.ru", "user1", "first", LocalDate.of(1992, 3, 4)));
+		userService.addUser(new User("2@yandex.ru", "user2", "second", LocalDate.of(1993, 4, 5)));
+		filmService.addFilm(new Film("film", "description", LocalDate.of(2000, 1, 1), 100,
+				new TreeSet<>(Set.of(new Genre(1, null))), new Mpa(1, null)));
+	}
+
+	@Test
+	public void statementsCountedPerRoute() throws Exception {
+		queryCounter.reset();
+		mockMvc.perform(get("/films/1")).andExpect(status().isOk());
+		int queries = queryCounter.get();
+		mockMvc.perform(get("/users/1/friends/common/2")).andExpect(status().isOk());
+		mockMvc.perform(get("/films/99")).andExpect(status().isNotFound());
+
+		DistributionSummary film = registry.get("filmorate.http.sql.statements")
+				.tag("method", "GET").tag("uri", "/films/{id}").summary();
+		assertThat(queries).isPositive();
+		assertThat(film.count()).isEqualTo(2);
+		assertThat(film.totalAmount()).isGreaterThanOrEqualTo(queries);
+		assertThat(registry.get("filmorate.http.sql.statements")
+				.tag("uri", "/users/{id}/friends/common/{otherId}").summary().count()).isEqualTo(1);
+	}
+
+	@Test
+	public void repositoryCallsTimedWithRoute() throws Exception {
+		mockMvc.perform(get("/films/1")).andExpect(status().isOk());
+
+		assertThat(registry.get("filmorate.repository").tag("class", "FilmDbStorage").tag("method", "getById")
+				.tag("uri", "/films/{id}").tag("exception", "none").timer().count()).isEqualTo(1);
+		// вызовы вне HTTP-запросов помечаются маршрутом none
+		assertThat(registry.get("filmorate.repository").tag("class", "UserDbStorage").tag("method", "save")
+				.tag("uri", "none").timer().count()).isEqualTo(2);
+	}
+
+	@Test
+	public void prometheusEndpointExposesMetrics() throws Exception {
+		mockMvc.perform(get("/films/1")).andExpect(status().isOk());
+
+		String body = mockMvc.perform(get("/actuator/prometheus"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+		assertThat(body).contains("filmorate_http_sql_statements_bucket{method=\"GET\",uri=\"/films/{id}\"");
+		assertThat(body).contains("filmorate_repository_seconds_count{class=\"FilmDbStorage\"");
+		assertThat(body).contains("hikaricp_connections_active");
+	}
+
+	@Test
+	public void flightRecorderEndpointDisabledByDefault() throws Exception {
+		mockMvc.perform(get("/admin/jfr")).andExpect(status().isNotFound());
+		mockMvc.perform(post("/admin/jfr/start")).andExpect(status().isNotFound());
+	}
+}
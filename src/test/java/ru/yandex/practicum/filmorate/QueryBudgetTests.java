@@ -0,0 +1,142 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+// бюджет SQL-запросов на каждый эндпоинт; кэш сущностей выключен, чтобы считать обращения к базе
+@SpringBootTest(properties = "filmorate.cache.entities.enabled=false")
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@Import({QueryCounter.Config.class, TestData.class})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class QueryBudgetTests {
+	private static final int FILMS_COUNT = 1000;
+	private static final int USERS_COUNT = 100;
+	private static final String FILM = "{\"name\": \"film\", \"description\": \"description\", " +
+			"\"releaseDate\": \"2000-01-01\", \"duration\": 100, \"mpa\": {\"id\": 1}, " +
+			"\"genres\": [{\"id\": 1}, {\"id\": 2}]";
+	private final JdbcTemplate jdbcTemplate;
+	private final TestData testData;
+	private final QueryCounter queryCounter;
+	private final MockMvc mockMvc;
+
+	@BeforeEach
+	public void init() {
+		testData.reset();
+		TestData.addFilms(jdbcTemplate, FILMS_COUNT);
+		jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) SELECT id, 1 FROM films");
+		jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) SELECT id, 2 FROM films");
+		TestData.addUsers(jdbcTemplate, USERS_COUNT);
+		// каждый пользователь лайкает каждый десятый фильм и дружит с тремя следующими
+		jdbcTemplate.update("INSERT INTO likes (film_id, user_id) SELECT f.id, u.id FROM films f " +
+				"JOIN users u ON MOD(f.id, 10) = MOD(u.id, 10)");
+		jdbcTemplate.update("UPDATE films f SET like_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id)");
+		jdbcTemplate.update("INSERT INTO friends (user_id, friend_id) SELECT u.id, f.id FROM users u " +
+				"JOIN users f ON f.id BETWEEN u.id + 1 AND u.id + 3");
+		testData.reloadIndexes();
+	}
+
+	@Test
+	public void filmReadsWithinBudget() throws Exception {
+		assertBudget(2, get("/films"));
+		assertBudget(2, get("/films?after=100&limit=100"));
+		assertBudget(2, get("/films?ids=1,2,3,5000"));
+		assertBudget(2, get("/films/1"));
+		assertBudget(3, get("/films/export"));
+		assertBudget(2, get("/films/1/similar?count=10"));
+		assertBudget(2, get("/films/popular?count=100"));
+	}
+
+	@Test
+	public void filmWritesWithinBudget() throws Exception {
+		assertBudget(2, post("/films").contentType(MediaType.APPLICATION_JSON).content(FILM + "}"));
+		assertBudget(2, post("/films/batch").contentType(MediaType.APPLICATION_JSON)
+				.content("[" + FILM + "}, " + FILM + "}, " + FILM + "}]"));
+		assertBudget(3, put("/films").contentType(MediaType.APPLICATION_JSON)
+				.content(FILM + ", \"id\": 5}"));
+		assertBudget(2, put("/films/2/like/1"));
+		assertBudget(3, delete("/films/2/like/1"));
+		assertBudget(3, post("/films/likes/batch").contentType(MediaType.APPLICATION_JSON)
+				.content("[{\"filmId\": 3, \"userId\": 1, \"action\": \"LIKE\"}, " +
+						"{\"filmId\": 3, \"userId\": 3, \"action\": \"UNLIKE\"}, " +
+						"{\"filmId\": 4, \"userId\": 2, \"action\": \"LIKE\"}]"));
+	}
+
+	@Test
+	public void userReadsWithinBudget() throws Exception {
+		assertBudget(1, get("/users"));
+		assertBudget(1, get("/users?after=10&limit=50"));
+		assertBudget(1, get("/users?ids=1,2,3,5000"));
+		assertBudget(1, get("/users/1"));
+		assertBudget(1, get("/users/1/friends"));
+		assertBudget(1, get("/users/1/friends/suggestions?limit=10"));
+		assertBudget(0, get("/users/1/recommendations?limit=10"));
+		assertBudget(1, get("/users/1/friends/common/2"));
+	}
+
+	@Test
+	public void userWritesWithinBudget() throws Exception {
+		assertBudget(1, post("/users").contentType(MediaType.APPLICATION_JSON).content(user("new") + "}"));
+		assertBudget(1, post("/users/batch").contentType(MediaType.APPLICATION_JSON)
+				.content("[" + user("first") + "}, " + user("second") + "}]"));
+		assertBudget(1, put("/users").contentType(MediaType.APPLICATION_JSON)
+				.content(user("updated") + ", \"id\": 5}"));
+		assertBudget(1, put("/users/1/friends/50"));
+		assertBudget(1, delete("/users/1/friends/2"));
+	}
+
+	@Test
+	public void referenceDataServedWithoutQueries() throws Exception {
+		assertBudget(0, get("/genres"));
+		assertBudget(0, get("/genres/1"));
+		assertBudget(0, get("/mpa"));
+		assertBudget(0, get("/mpa/1"));
+	}
+
+	@Test
+	public void exceededBudgetListsExecutedStatements() {
+		assertThatThrownBy(() -> assertBudget(0, get("/films/1")))
+				.isInstanceOf(AssertionError.class)
+				.hasMessageStartingWith("GET /films/1: выполнено")
+				.hasMessageContaining("1. SELECT");
+	}
+
+	private String user(String login) {
+		return String.format("{\"email\": \"%s@yandex.ru\", \"login\": \"%s\", \"name\": \"%s\", " +
+				"\"birthday\": \"2000-01-01\"", login, login, login);
+	}
+
+	private void assertBudget(int budget, MockHttpServletRequestBuilder request) throws Exception {
+		MockHttpServletRequest built = request.buildRequest(new MockServletContext());
+		String operation = built.getMethod() + " " + built.getRequestURI()
+				+ (built.getQueryString() != null ? "?" + built.getQueryString() : "");
+		queryCounter.assertBudget(operation, budget, () -> {
+			MvcResult result = mockMvc.perform(request).andReturn();
+			if (result.getRequest().isAsyncStarted()) {
+				result = mockMvc.perform(asyncDispatch(result)).andReturn();
+			}
+			assertThat(result.getResponse().getStatus()).as(operation).isBetween(200, 299);
+		});
+	}
+}
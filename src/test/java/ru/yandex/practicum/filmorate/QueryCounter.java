@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import ru.yandex.practicum.filmorate.metrics.StatementCountingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class QueryCounter {
+    private final AtomicInteger count = new AtomicInteger();
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+    // задержка каждого запроса, как у базы за сетью
+    private volatile long latencyMillis;
+
+    public void reset() {
+        count.set(0);
+        statements.clear();
+    }
+
+    public int get() {
+        return count.get();
+    }
+
+    public List<String> getStatements() {
+        return List.copyOf(statements);
+    }
+
+    // выполняет действие и падает со списком выполненных запросов, если их больше бюджета
+    public void assertBudget(String operation, int budget, Action action) throws Exception {
+        reset();
+        action.run();
+        List<String> executed = getStatements();
+        if (executed.size() > budget) {
+            StringBuilder message = new StringBuilder(String.format("%s: выполнено %d SQL-запросов при бюджете %d",
+                    operation, executed.size(), budget));
+            for (int i = 0; i < executed.size(); i++) {
+                message.append(System.lineSeparator()).append(i + 1).append(". ").append(executed.get(i));
+            }
+            throw new AssertionError(message.toString());
+        }
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    private void executing(String method, String sql) throws InterruptedException {
+        count.incrementAndGet();
+        statements.add(method.equals("executeBatch") ? "[batch] " + sql : sql);
+        if (latencyMillis > 0) {
+            Thread.sleep(latencyMillis);
+        }
+    }
+
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    @TestConfiguration
+    public static class Config {
+        // запросы считает тот же перехватчик, что и метрики приложения
+        @Bean
+        public QueryCounter queryCounter(DataSource dataSource) throws SQLException {
+            QueryCounter queryCounter = new QueryCounter();
+            dataSource.unwrap(StatementCountingDataSource.class).addListener(queryCounter::executing);
+            return queryCounter;
+        }
+    }
+}
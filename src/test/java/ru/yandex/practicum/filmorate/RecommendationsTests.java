@@ -0,0 +1,165 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dao.LikesDao;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ru.yandex.practicum.filmorate.TestData.filmIds;
+
+@SpringBootTest(properties = "filmorate.cache.entities.enabled=false")
+@AutoConfigureTestDatabase
+@Import(TestData.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class RecommendationsTests {
+	private final JdbcTemplate jdbcTemplate;
+	private final LikesDao likesDao;
+	private final LikesMatrix likesMatrix;
+	private final FilmService filmService;
+	private final TransactionTemplate transactionTemplate;
+	private final TestData testData;
+
+	@BeforeEach
+	public void init() {
+		testData.reset();
+		TestData.addFilms(jdbcTemplate, 8);
+		TestData.addUsers(jdbcTemplate, 6);
+		// пользователь 1 совпадает с пользователем 2 по трем фильмам, с пользователем 5 - по двум, с 3 - по одному
+		jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES " +
+				"(1, 1), (2, 1), (3, 1), " +
+				"(1, 2), (2, 2), (3, 2), (4, 2), (5, 2), " +
+				"(1, 3), (5, 3), (6, 3), " +
+				"(7, 4), " +
+				"(2, 5), (3, 5), (6, 5)");
+		testData.reloadIndexes();
+	}
+
+	@Test
+	public void recommendationsWeightedByOverlap() {
+		assertThat(filmIds(filmService.getRecommendations(1, 10))).containsExactly(5, 4, 6);
+		assertThat(filmIds(filmService.getRecommendations(1, 2))).containsExactly(5, 4);
+		assertThat(filmService.getRecommendations(6, 10)).isEmpty();
+		assertThat(likesMatrix.recommend(1, 10, 1, 1000)).containsExactly(4, 5);
+	}
+
+	@Test
+	public void recommendationsBoundedByTimeout() {
+		// исчерпанный лимит останавливает и сбор кандидатов, и их ранжирование
+		assertThat(likesMatrix.recommend(1, 10, 50, 0)).isEmpty();
+	}
+
+	@Test
+	public void recommendationsFollowLikeChanges() {
+		filmService.like(5, 1);
+
+		assertThat(filmIds(filmService.getRecommendations(1, 10))).containsExactly(4, 6);
+
+		filmService.deleteLike(5, 1);
+		filmService.like(8, 2);
+
+		assertThat(filmIds(filmService.getRecommendations(1, 10))).containsExactly(5, 4, 6, 8);
+	}
+
+	@Test
+	public void matrixMatchesDatabaseAfterConcurrentLikes() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int thread = 0; thread < 8; thread++) {
+			futures.add(executor.submit(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i = 0; i < 500; i++) {
+					int filmId = random.nextInt(1, 9);
+					int userId = random.nextInt(1, 7);
+					if (random.nextBoolean()) {
+						likesDao.save(filmId, userId);
+					} else {
+						likesDao.delete(filmId, userId);
+					}
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		List<int[]> fromMatrix = new ArrayList<>();
+		for (int userId = 1; userId <= 6; userId++) {
+			fromMatrix.add(likesMatrix.recommend(userId, 10, 50, 1000));
+		}
+		likesMatrix.reload();
+		for (int userId = 1; userId <= 6; userId++) {
+			assertThat(fromMatrix.get(userId - 1)).containsExactly(likesMatrix.recommend(userId, 10, 50, 1000));
+		}
+	}
+
+	@Test
+	public void batchedLikesReachMatrixInOrder() {
+		likesDao.applyBatch(List.of(new LikeOperation(5, 1, LikeOperation.Action.LIKE),
+				new LikeOperation(5, 4, LikeOperation.Action.LIKE),
+				new LikeOperation(5, 1, LikeOperation.Action.UNLIKE),
+				new LikeOperation(1, 2, LikeOperation.Action.UNLIKE),
+				new LikeOperation(7, 4, LikeOperation.Action.UNLIKE),
+				new LikeOperation(8, 1, LikeOperation.Action.LIKE)));
+
+		assertThat(likesMatrix.contains(5, 1)).isFalse();
+		assertThat(likesMatrix.contains(5, 4)).isTrue();
+		assertThat(likesMatrix.contains(1, 2)).isFalse();
+		assertThat(likesMatrix.contains(7, 4)).isFalse();
+		assertThat(likesMatrix.contains(8, 1)).isTrue();
+		List<int[]> fromMatrix = new ArrayList<>();
+		for (int userId = 1; userId <= 6; userId++) {
+			fromMatrix.add(likesMatrix.recommend(userId, 10, 50, 1000));
+		}
+		likesMatrix.reload();
+		for (int userId = 1; userId <= 6; userId++) {
+			assertThat(fromMatrix.get(userId - 1)).containsExactly(likesMatrix.recommend(userId, 10, 50, 1000));
+		}
+	}
+
+	@Test
+	public void rolledBackLikesDoNotReachMatrix() {
+		transactionTemplate.executeWithoutResult(status -> {
+			assertThat(likesDao.save(4, 1)).isTrue();
+			assertThat(likesDao.delete(1, 1)).isTrue();
+			likesDao.applyBatch(List.of(new LikeOperation(6, 1, LikeOperation.Action.LIKE),
+					new LikeOperation(2, 1, LikeOperation.Action.UNLIKE)));
+			status.setRollbackOnly();
+		});
+
+		assertThat(likesMatrix.contains(4, 1)).isFalse();
+		assertThat(likesMatrix.contains(6, 1)).isFalse();
+		assertThat(likesMatrix.contains(1, 1)).isTrue();
+		assertThat(likesMatrix.contains(2, 1)).isTrue();
+		assertThat(likesDao.exists(4, 1)).isFalse();
+		assertThat(likesDao.exists(1, 1)).isTrue();
+	}
+
+	@Test
+	public void recommendationsWithIncorrectParameters() {
+		assertThatThrownBy(() -> filmService.getRecommendations(7, 10))
+				.isInstanceOf(UserNotFoundException.class);
+		assertThatThrownBy(() -> filmService.getRecommendations(1, 0))
+				.isInstanceOf(IncorrectParameterException.class);
+	}
+}
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+@Tag("benchmark")
+class SchemaLookupBenchmarkTests {
+	private static final int FILMS_COUNT = 5_000;
+	private static final int USERS_COUNT = 5_000;
+	private static final int LIKES_PER_USER = 20;
+	private static final int FRIENDS_PER_USER = 10;
+	private static final int LOOKUPS = 5_000;
+
+	@Test
+	public void compareLookupsBeforeAndAfterMigration() {
+		JdbcTemplate legacy = createDatabase("1");
+		JdbcTemplate keyed = createDatabase("3");
+
+		compare("likes by film_id", legacy, keyed,
+				(jdbcTemplate, id) -> jdbcTemplate.queryForList("SELECT user_id FROM likes WHERE film_id = ?",
+						Integer.class, id));
+		compare("likes by user_id", legacy, keyed,
+				(jdbcTemplate, id) -> jdbcTemplate.queryForList("SELECT film_id FROM likes WHERE user_id = ?",
+						Integer.class, id));
+		compare("friends by user_id", legacy, keyed,
+				(jdbcTemplate, id) -> jdbcTemplate.queryForList("SELECT friend_id FROM friends WHERE user_id = ?",
+						Integer.class, id));
+		compare("friends by friend_id", legacy, keyed,
+				(jdbcTemplate, id) -> jdbcTemplate.queryForList("SELECT user_id FROM friends WHERE friend_id = ?",
+						Integer.class, id));
+		compare("film_genre by film_id", legacy, keyed,
+				(jdbcTemplate, id) -> jdbcTemplate.queryForList("SELECT genre_id FROM film_genre WHERE film_id = ?",
+						Integer.class, id));
+		compare("like exists", legacy, keyed,
+				(jdbcTemplate, id) -> jdbcTemplate.queryForList("SELECT 1 FROM likes WHERE film_id = ? AND user_id = ?",
+						Integer.class, id, id));
+	}
+
+	private void compare(String name, JdbcTemplate legacy, JdbcTemplate keyed, Lookup lookup) {
+		for (int id = 1; id <= 100; id++) {
+			assertThat(lookup.run(keyed, id)).containsExactlyInAnyOrderElementsOf(lookup.run(legacy, id));
+		}
+		long legacyNanos = measure(id -> lookup.run(legacy, id));
+		long keyedNanos = measure(id -> lookup.run(keyed, id));
+		log.info("{}: схема v1 {} нс/запрос, схема v3 {} нс/запрос", name,
+				legacyNanos / LOOKUPS, keyedNanos / LOOKUPS);
+	}
+
+	private long measure(IntConsumer action) {
+		Random random = new Random(42);
+		// прогрев
+		for (int i = 0; i < LOOKUPS; i++) {
+			action.accept(random.nextInt(FILMS_COUNT) + 1);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < LOOKUPS; i++) {
+			action.accept(random.nextInt(FILMS_COUNT) + 1);
+		}
+		return System.nanoTime() - start;
+	}
+
+	private JdbcTemplate createDatabase(String version) {
+		SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+				"jdbc:h2:mem:benchmark" + version + ";DB_CLOSE_DELAY=-1", "sa", "password", true);
+		Flyway.configure()
+				.dataSource(dataSource)
+				.target(version)
+				.load()
+				.migrate();
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, mpa_id) " +
+				"SELECT CONCAT('film', x), 'test film', '2000-01-01', 100, MOD(x, 5) + 1 " +
+				"FROM SYSTEM_RANGE(1, ?)", FILMS_COUNT);
+		jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) " +
+				"SELECT CONCAT(x, '@yandex.ru'), CONCAT('user', x), CONCAT('user', x), '2000-01-01' " +
+				"FROM SYSTEM_RANGE(1, ?)", USERS_COUNT);
+		jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) " +
+				"SELECT f.x, g.x FROM SYSTEM_RANGE(1, ?) AS f, SYSTEM_RANGE(1, 3) AS g", FILMS_COUNT);
+		jdbcTemplate.update("INSERT INTO likes (film_id, user_id) " +
+				"SELECT MOD(u.x * 31 + l.x * 97, ?) + 1, u.x FROM SYSTEM_RANGE(1, ?) AS u, SYSTEM_RANGE(1, ?) AS l",
+				FILMS_COUNT, USERS_COUNT, LIKES_PER_USER);
+		jdbcTemplate.update("INSERT INTO friends (user_id, friend_id) " +
+				"SELECT u.x, MOD(u.x + f.x * 37, ?) + 1 FROM SYSTEM_RANGE(1, ?) AS u, SYSTEM_RANGE(1, ?) AS f",
+				USERS_COUNT, USERS_COUNT, FRIENDS_PER_USER);
+		return jdbcTemplate;
+	}
+
+	private interface Lookup {
+		List<Integer> run(JdbcTemplate jdbcTemplate, int id);
+	}
+}
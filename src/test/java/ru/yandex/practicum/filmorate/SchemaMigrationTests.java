@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SchemaMigrationTests {
+	private DataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	public void init() throws SQLException {
+		dataSource = new DriverManagerDataSource("jdbc:h2:mem:legacy" + System.nanoTime() + ";DB_CLOSE_DELAY=-1",
+				"sa", "password");
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		// база, созданная старыми schema.sql и data.sql, без истории миграций
+		try (Connection connection = dataSource.getConnection()) {
+			ScriptUtils.executeSqlScript(connection,
+					new EncodedResource(new ClassPathResource("db/migration/V1__init.sql"), StandardCharsets.UTF_8));
+		}
+		jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, mpa_id) VALUES " +
+				"('film1', 'first film', '2000-01-01', 100, 1), " +
+				"('film2', 'second film', '2001-01-01', 110, 2)");
+		jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) VALUES " +
+				"('1@yandex.ru', 'user1', 'first', '1992-03-04'), " +
+				"('2@yandex.ru', 'user2', 'second', '1994-10-14'), " +
+				"('3@yandex.ru', 'user3', 'third', '1996-06-20')");
+		jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (1, 1), (1, 1), (1, 2), (2, 3)");
+		jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (1, 1), (1, 1), (1, 1), (1, 2), (2, 3)");
+		jdbcTemplate.update("INSERT INTO friends (user_id, friend_id) VALUES (1, 3), (1, 2), (1, 3), (2, 1)");
+	}
+
+	@Test
+	public void migrateLegacyDatabase() {
+		migrate();
+
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_genre", Integer.class)).isEqualTo(3);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Integer.class)).isEqualTo(3);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friends", Integer.class)).isEqualTo(3);
+		assertThat(jdbcTemplate.queryForList("SELECT like_count FROM films ORDER BY id", Integer.class))
+				.containsExactly(2, 1);
+		assertThat(jdbcTemplate.queryForList("SELECT friend_id FROM friends WHERE user_id = 1 ORDER BY _ROWID_",
+				Integer.class)).containsExactly(3, 2);
+		assertThat(jdbcTemplate.queryForObject("SELECT MAX(\"version\") FROM \"flyway_schema_history\"", String.class))
+				.isEqualTo("4");
+	}
+
+	@Test
+	public void migratedLinkTablesRejectDuplicates() {
+		migrate();
+
+		assertThatThrownBy(() -> jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (1, 1)"))
+				.isInstanceOf(DuplicateKeyException.class);
+		assertThatThrownBy(() -> jdbcTemplate.update("INSERT INTO friends (user_id, friend_id) VALUES (1, 2)"))
+				.isInstanceOf(DuplicateKeyException.class);
+		assertThatThrownBy(() -> jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) VALUES (1, 2)"))
+				.isInstanceOf(DuplicateKeyException.class);
+	}
+
+	@Test
+	public void migratedSchemaHasLookupIndexes() {
+		migrate();
+		List<String> indexedColumns = jdbcTemplate.queryForList("SELECT CONCAT(table_name, '.', column_name) " +
+				"FROM information_schema.index_columns WHERE ordinal_position = 1", String.class);
+
+		assertThat(indexedColumns).contains("LIKES.FILM_ID", "LIKES.USER_ID", "FRIENDS.USER_ID",
+				"FRIENDS.FRIEND_ID", "FILM_GENRE.FILM_ID", "FILM_GENRE.GENRE_ID", "FILMS.MPA_ID");
+	}
+
+	private void migrate() {
+		Flyway.configure()
+				.dataSource(dataSource)
+				.baselineOnMigrate(true)
+				.baselineVersion("1")
+				.load()
+				.migrate();
+	}
+}
@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.dao.LikesDao;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
+import ru.yandex.practicum.filmorate.index.SimilarFilmsIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static ru.yandex.practicum.filmorate.TestData.filmIds;
+
+@SpringBootTest(properties = {"filmorate.similar.refresh-batch-size=4", "filmorate.similar.refresh-ms=3600000"})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class SimilarFilmsTests {
+	private static final int COUNT = 20;
+	private final JdbcTemplate jdbcTemplate;
+	private final LikesDao likesDao;
+	private final LikesMatrix likesMatrix;
+	private final SimilarFilmsIndex similarFilmsIndex;
+	private final FilmService filmService;
+	private final MeterRegistry meterRegistry;
+
+	@BeforeEach
+	public void init() {
+		TestData.addFilms(jdbcTemplate, COUNT);
+		TestData.addUsers(jdbcTemplate, COUNT);
+		jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES " +
+				"(1, 1), (2, 1), (3, 1), (1, 2), (2, 2), (1, 3), (3, 3), (4, 3), (2, 4), (5, 4)");
+		likesMatrix.reload();
+		similarFilmsIndex.rebuild();
+	}
+
+	@Test
+	public void similarFilmsRankedByCoLikes() {
+		assertThat(filmIds(filmService.getSimilarFilms(1, 10))).containsExactly(2, 3, 4);
+		assertThat(filmIds(filmService.getSimilarFilms(1, 2))).containsExactly(2, 3);
+		assertThat(filmIds(filmService.getSimilarFilms(5, 10))).containsExactly(2);
+		assertThat(filmService.getSimilarFilms(6, 10)).isEmpty();
+	}
+
+	@Test
+	public void similarFilmsFollowLikesAfterRefresh() {
+		filmService.like(5, 1);
+		similarFilmsIndex.refresh();
+
+		assertThat(filmIds(filmService.getSimilarFilms(5, 10))).containsExactly(2, 1, 3);
+		// список фильма 1 пересчитывается только при полной перестройке
+		assertThat(filmIds(filmService.getSimilarFilms(1, 10))).containsExactly(2, 3, 4);
+		similarFilmsIndex.rebuild();
+		assertThat(filmIds(filmService.getSimilarFilms(1, 10))).containsExactly(2, 3, 4, 5);
+
+		filmService.deleteLike(1, 3);
+		similarFilmsIndex.refresh();
+
+		assertThat(filmIds(filmService.getSimilarFilms(1, 10))).containsExactly(2, 3, 5);
+		similarFilmsIndex.rebuild();
+		assertThat(filmIds(filmService.getSimilarFilms(4, 10))).containsExactly(3);
+	}
+
+	@Test
+	public void refreshedFilmsMatchFullRebuild() {
+		Random random = new Random(1);
+		Set<Integer> changed = new HashSet<>();
+		for (int i = 0; i < 300; i++) {
+			int filmId = random.nextInt(COUNT) + 1;
+			int userId = random.nextInt(COUNT) + 1;
+			if (random.nextBoolean()) {
+				filmService.like(filmId, userId);
+			} else {
+				likesDao.delete(filmId, userId);
+				similarFilmsIndex.markChanged(filmId);
+			}
+			changed.add(filmId);
+			if (i % 50 == 0) {
+				similarFilmsIndex.refresh();
+			}
+		}
+		refreshAll();
+		Map<Integer, int[]> refreshed = new HashMap<>();
+		for (int filmId : changed) {
+			refreshed.put(filmId, similarFilmsIndex.getSimilar(filmId, COUNT));
+		}
+		similarFilmsIndex.rebuild();
+
+		for (int filmId : changed) {
+			assertThat(refreshed.get(filmId)).containsExactly(similarFilmsIndex.getSimilar(filmId, COUNT));
+		}
+	}
+
+	@Test
+	public void refreshRecomputesBoundedBatch() {
+		for (int filmId = 1; filmId <= 10; filmId++) {
+			similarFilmsIndex.markChanged(filmId);
+		}
+
+		similarFilmsIndex.refresh();
+		assertThat(pending()).isEqualTo(6);
+		similarFilmsIndex.refresh();
+		assertThat(pending()).isEqualTo(2);
+		similarFilmsIndex.refresh();
+		assertThat(pending()).isZero();
+		assertThat(meterRegistry.get("filmorate.similar.refresh.lag").gauge().value()).isNotNegative();
+	}
+
+	@Test
+	public void indexReportsMetrics() {
+		filmService.like(5, 1);
+		similarFilmsIndex.refresh();
+
+		assertThat(meterRegistry.get("filmorate.similar.build").timer().count()).isPositive();
+		assertThat(meterRegistry.get("filmorate.similar.memory").gauge().value()).isPositive();
+		assertThat(meterRegistry.get("filmorate.similar.refresh.lag").gauge().value()).isNotNegative();
+		assertThat(meterRegistry.get("filmorate.similar.pending").gauge().value()).isZero();
+	}
+
+	@Test
+	public void similarFilmsOfUnknownFilm() {
+		assertThatThrownBy(() -> filmService.getSimilarFilms(COUNT + 1, 10))
+				.isInstanceOf(FilmNotFoundException.class);
+	}
+
+	private void refreshAll() {
+		while (pending() > 0) {
+			similarFilmsIndex.refresh();
+		}
+	}
+
+	private double pending() {
+		return meterRegistry.get("filmorate.similar.pending").gauge().value();
+	}
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(properties = {
+		"filmorate.cache.entities.enabled=false",
+		"logging.level.ru.yandex.practicum.filmorate.service=warn"
+})
+@AutoConfigureTestDatabase
+@Import(QueryCounter.Config.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class SingleFlightBenchmarkTests {
+	private static final long DURATION_MILLIS = 2000;
+	private static final long QUERY_LATENCY_MILLIS = 2;
+	private final JdbcTemplate jdbcTemplate;
+	private final FilmService filmService;
+	private final PopularityIndex popularityIndex;
+	private final QueryCounter queryCounter;
+
+	@Test
+	public void queryRateStaysFlatAsConcurrencyRises() throws Exception {
+		jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, mpa_id, like_count) " +
+				"SELECT CONCAT('film', x), 'hot film', '2000-01-01', 100, 1, x FROM SYSTEM_RANGE(1, 1000)");
+		jdbcTemplate.update("INSERT INTO film_genre (film_id, genre_id) " +
+				"SELECT x, x % 6 + 1 FROM SYSTEM_RANGE(1, 1000)");
+		popularityIndex.reload();
+		queryCounter.setLatencyMillis(QUERY_LATENCY_MILLIS);
+		run(4);
+
+		List<Double> queryRates = new ArrayList<>();
+		for (int threads : new int[]{2, 8, 32, 64}) {
+			queryCounter.reset();
+			long requests = run(threads);
+			double queriesPerSecond = queryCounter.get() * 1000.0 / DURATION_MILLIS;
+			queryRates.add(queriesPerSecond);
+			log.info("Потоков {}: запросов {} в секунду, запросов к базе {} в секунду, {} на запрос",
+					threads, requests * 1000 / DURATION_MILLIS, Math.round(queriesPerSecond),
+					String.format("%.3f", (double) queryCounter.get() / requests));
+		}
+
+		assertThat(queryRates.get(3)).isLessThanOrEqualTo(queryRates.get(0) * 1.5);
+	}
+
+	// половина потоков читает горячий фильм, половина - популярные фильмы
+	private long run(int threads) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		long deadline = System.currentTimeMillis() + DURATION_MILLIS;
+		List<Future<Long>> futures = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			boolean top = i % 2 == 1;
+			futures.add(executor.submit(() -> {
+				long requests = 0;
+				while (System.currentTimeMillis() < deadline) {
+					if (top) {
+						filmService.getTopLikes(10);
+					} else {
+						filmService.getFilm(1000);
+					}
+					requests++;
+				}
+				return requests;
+			}));
+		}
+		long requests = 0;
+		for (Future<Long> future : futures) {
+			requests += future.get();
+		}
+		executor.shutdown();
+		return requests;
+	}
+}
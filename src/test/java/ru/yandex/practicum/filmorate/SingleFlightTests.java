@@ -0,0 +1,127 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.util.SingleFlight;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTests {
+	private static final int CALLERS = 16;
+
+	@Test
+	public void concurrentCallsShareOneExecution() throws Exception {
+		SingleFlight<Integer, String> flight = new SingleFlight<>("теста", 10_000);
+		AtomicInteger executions = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+		List<Future<String>> results = new ArrayList<>();
+		results.add(executor.submit(() -> flight.execute(1, () -> {
+			executions.incrementAndGet();
+			started.countDown();
+			await(release);
+			return "film";
+		})));
+		started.await();
+		for (int i = 1; i < CALLERS; i++) {
+			results.add(executor.submit(() -> flight.execute(1, () -> {
+				executions.incrementAndGet();
+				return "other";
+			})));
+		}
+		waitUntilBlocked(CALLERS);
+		release.countDown();
+
+		for (Future<String> result : results) {
+			assertThat(result.get()).isEqualTo("film");
+		}
+		assertThat(executions).hasValue(1);
+		assertThat(flight.execute(1, () -> "next")).isEqualTo("next");
+		executor.shutdown();
+	}
+
+	@Test
+	public void errorIsPropagatedToAllCallers() throws Exception {
+		SingleFlight<Integer, String> flight = new SingleFlight<>("теста", 10_000);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+		List<Future<String>> results = new ArrayList<>();
+		results.add(executor.submit(() -> flight.execute(7, () -> {
+			started.countDown();
+			await(release);
+			throw new FilmNotFoundException("Фильм с id=7 не найден.");
+		})));
+		started.await();
+		for (int i = 1; i < CALLERS; i++) {
+			results.add(executor.submit(() -> flight.execute(7, () -> "other")));
+		}
+		waitUntilBlocked(CALLERS);
+		release.countDown();
+
+		for (Future<String> result : results) {
+			assertThatThrownBy(result::get)
+					.hasCauseInstanceOf(FilmNotFoundException.class)
+					.hasRootCauseMessage("Фильм с id=7 не найден.");
+		}
+		executor.shutdown();
+	}
+
+	@Test
+	public void waiterRunsItselfAfterTimeout() throws Exception {
+		SingleFlight<Integer, String> flight = new SingleFlight<>("теста", 50);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<String> stuck = executor.submit(() -> flight.execute(1, () -> {
+			started.countDown();
+			await(release);
+			return "slow";
+		}));
+		started.await();
+
+		assertThat(flight.execute(1, () -> "fast")).isEqualTo("fast");
+		assertThat(flight.execute(2, () -> "other key")).isEqualTo("other key");
+		release.countDown();
+		assertThat(stuck.get()).isEqualTo("slow");
+		executor.shutdown();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	// все потоки пула заняты и ждут: ведущий на защелке, остальные на общем результате
+	private static void waitUntilBlocked(int threads) throws InterruptedException {
+		while (Thread.getAllStackTraces().keySet().stream()
+				.filter(thread -> thread.getState() == Thread.State.WAITING
+						|| thread.getState() == Thread.State.TIMED_WAITING)
+				.filter(thread -> isCaller(thread.getStackTrace()))
+				.count() < threads) {
+			Thread.sleep(5);
+		}
+	}
+
+	private static boolean isCaller(StackTraceElement[] stack) {
+		for (StackTraceElement element : stack) {
+			if (element.getClassName().equals(SingleFlight.class.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
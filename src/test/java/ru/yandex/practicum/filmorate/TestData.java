@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
+import ru.yandex.practicum.filmorate.index.PopularityIndex;
+import ru.yandex.practicum.filmorate.index.SimilarFilmsIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.repository.FilmDbStorage;
+import ru.yandex.practicum.filmorate.repository.UserDbStorage;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+// общие тестовые данные: вставка фильмов и пользователей одним запросом и сброс базы без пересоздания контекста.
+// reset не очищает кэш сущностей (он помнит и отсутствующие id), поэтому классы, которые сбрасывают данные
+// вместо @DirtiesContext, работают с выключенным кэшем
+class TestData {
+	private final JdbcTemplate jdbcTemplate;
+	private final FilmDbStorage filmStorage;
+	private final UserDbStorage userStorage;
+	private final LikesMatrix likesMatrix;
+	private final PopularityIndex popularityIndex;
+	private final SimilarFilmsIndex similarFilmsIndex;
+	private final FriendGraph friendGraph;
+
+	TestData(JdbcTemplate jdbcTemplate, FilmDbStorage filmStorage, UserDbStorage userStorage,
+			 LikesMatrix likesMatrix, PopularityIndex popularityIndex, SimilarFilmsIndex similarFilmsIndex,
+			 FriendGraph friendGraph) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.filmStorage = filmStorage;
+		this.userStorage = userStorage;
+		this.likesMatrix = likesMatrix;
+		this.popularityIndex = popularityIndex;
+		this.similarFilmsIndex = similarFilmsIndex;
+		this.friendGraph = friendGraph;
+	}
+
+	// удаляет фильмы, пользователей и связи, счетчики id начинаются заново; справочники не трогаются
+	public void reset() {
+		jdbcTemplate.update("DELETE FROM likes");
+		jdbcTemplate.update("DELETE FROM friends");
+		jdbcTemplate.update("DELETE FROM film_genre");
+		jdbcTemplate.update("DELETE FROM films");
+		jdbcTemplate.update("DELETE FROM users");
+		jdbcTemplate.update("ALTER TABLE films ALTER COLUMN id RESTART WITH 1");
+		jdbcTemplate.update("ALTER TABLE users ALTER COLUMN id RESTART WITH 1");
+		reloadIndexes();
+	}
+
+	// индексы в памяти перечитываются после вставки данных в обход сервисов
+	public void reloadIndexes() {
+		filmStorage.loadIds();
+		userStorage.loadIds();
+		likesMatrix.reload();
+		popularityIndex.reload();
+		similarFilmsIndex.rebuild();
+		friendGraph.reload();
+	}
+
+	// фильмы film1..filmN с рейтингом MPA 1 и без жанров
+	public static void addFilms(JdbcTemplate jdbcTemplate, int count) {
+		jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, mpa_id) " +
+				"SELECT CONCAT('film', x), 'test film', '2000-01-01', 100, 1 FROM SYSTEM_RANGE(1, ?)", count);
+	}
+
+	public static void addUsers(JdbcTemplate jdbcTemplate, int count) {
+		addUsers(jdbcTemplate, 1, count);
+	}
+
+	// пользователи с логином userX и почтой X@yandex.ru для X от from до to включительно
+	public static void addUsers(JdbcTemplate jdbcTemplate, int from, int to) {
+		jdbcTemplate.update("INSERT INTO users (email, login, name, birthday) " +
+				"SELECT CONCAT(x, '@yandex.ru'), CONCAT('user', x), CONCAT('user', x), '2000-01-01' " +
+				"FROM SYSTEM_RANGE(?, ?)", from, to);
+	}
+
+	public static List<Integer> filmIds(List<Film> films) {
+		return films.stream()
+				.map(Film::getId)
+				.collect(Collectors.toList());
+	}
+
+	public static List<Integer> userIds(List<User> users) {
+		return users.stream()
+				.map(User::getId)
+				.collect(Collectors.toList());
+	}
+}